@@ -1,21 +1,22 @@
 package com.streaming.api;
 
+import com.streaming.config.MongoPoolMetrics;
 import com.streaming.model.*;
 import com.streaming.service.EventProcessorService;
 import com.streaming.service.AnalyticsService;
+import com.streaming.service.RecommendationCache;
+import com.streaming.service.RetentionManager;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import jakarta.ws.rs.sse.OutboundSseEvent;
 import jakarta.ws.rs.sse.Sse;
 import jakarta.ws.rs.sse.SseEventSink;
+import java.io.InputStream;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 /**
  * REST API for streaming analytics with Service Layer architecture
@@ -31,8 +32,18 @@ public class AnalyticsResource {
     
     @Inject
     private AnalyticsService analyticsService;
+
+    @Inject
+    private MongoPoolMetrics mongoPoolMetrics;
     
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    @Inject
+    private RealtimeStatsBroadcaster realtimeStatsBroadcaster;
+
+    @Inject
+    private RecommendationCache recommendationCache;
+
+    @Inject
+    private RetentionManager retentionManager;
     
     /**
      * Health check endpoint - simple and fast
@@ -53,38 +64,39 @@ public class AnalyticsResource {
     @Path("/stats")
     public Response getStats() {
         EventProcessorService.ProcessingStats stats = eventProcessorService.getProcessingStats();
-        return Response.ok(Map.of(
-            "status", "UP", 
-            "timestamp", System.currentTimeMillis(),
-            "processedEvents", stats.getProcessedCount(),
-            "failedEvents", stats.getFailedCount(),
-            "successRate", stats.getSuccessRate()
-        )).build();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", "UP");
+        body.put("timestamp", System.currentTimeMillis());
+        body.put("processedEvents", stats.getProcessedCount());
+        body.put("failedEvents", stats.getFailedCount());
+        body.put("successRate", stats.getSuccessRate());
+        body.put("ingestQueueDepth", stats.getQueueDepth());
+        body.put("throttledEvents", stats.getThrottledCount());
+        body.put("deduplicatedEvents", stats.getDeduplicatedCount());
+        body.put("deduplication", stats.getDeduplication());
+        body.put("realtimeSubscribers", realtimeStatsBroadcaster.getSubscriberCount());
+        body.put("mongoPool", mongoPoolMetrics.snapshot());
+        body.put("recommendationCache", recommendationCache.snapshot());
+        body.put("retention", retentionManager.snapshot());
+        return Response.ok(body).build();
     }
     
     /**
      * Real-time stats stream via SSE
+     * mode=full sends the whole stats every second, mode=delta a snapshot then only changes
+     * (resumable with Last-Event-ID)
      */
     @GET
     @Path("/realtime/stream")
     @Produces("text/event-stream")
-    public void streamRealtimeStats(@Context SseEventSink eventSink, @Context Sse sse) {
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
-                RealTimeStats stats = analyticsService.getRealTimeStatistics();
-                if (stats == null) {
-                    stats = new RealTimeStats();
-                }
-                
-                OutboundSseEvent event = sse.newEventBuilder()
-                        .name("stats")
-                        .data(stats)
-                        .build();
-                eventSink.send(event);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }, 0, 1, TimeUnit.SECONDS);
+    public void streamRealtimeStats(@Context SseEventSink eventSink, @Context Sse sse,
+            @QueryParam("mode") @DefaultValue("full") String mode,
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        if ("delta".equalsIgnoreCase(mode)) {
+            realtimeStatsBroadcaster.subscribeDeltas(eventSink, sse, lastEventId);
+        } else {
+            realtimeStatsBroadcaster.subscribe(eventSink, sse);
+        }
     }
     
     /**
@@ -102,6 +114,33 @@ public class AnalyticsResource {
         return Response.ok(Map.of("data", recommendations)).build();
     }
     
+    /**
+     * Get the viewing behavior of a user (preferred categories and device, peak hour, session length)
+     */
+    @GET
+    @Path("/users/{userId}/behavior")
+    public Response getUserBehavior(@PathParam("userId") String userId) {
+        return Response.ok(Map.of("data", analyticsService.analyzeUserBehavior(userId))).build();
+    }
+    
+    /**
+     * Get engagement metrics per video category
+     */
+    @GET
+    @Path("/categories/engagement")
+    public Response getCategoryEngagement() {
+        return Response.ok(Map.of("data", analyticsService.getCategoryEngagement())).build();
+    }
+    
+    /**
+     * Get view-rate spikes and drops detected over the timeframe, most severe first
+     */
+    @GET
+    @Path("/anomalies")
+    public Response getAnomalies(@QueryParam("timeframe") @DefaultValue("24h") String timeframe) {
+        return Response.ok(Map.of("data", analyticsService.detectAnomalies(timeframe))).build();
+    }
+    
     /**
      * Ingest single event
      */
@@ -112,13 +151,18 @@ public class AnalyticsResource {
             EventProcessingResult result = eventProcessorService.ingestEvent(event);
             
             if (result.isSuccess()) {
-                return Response.status(Response.Status.CREATED)
+                return Response.status(Response.Status.ACCEPTED)
                         .entity(Map.of(
-                            "status", "created", 
+                            "status", result.isDuplicate() ? "duplicate" : "accepted",
                             "eventId", result.getEventId(),
                             "message", result.getMessage()
                         ))
                         .build();
+            } else if (result.isThrottled()) {
+                return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                        .header("Retry-After", "1")
+                        .entity(Map.of("error", result.getMessage()))
+                        .build();
             } else {
                 return Response.status(Response.Status.BAD_REQUEST)
                         .entity(Map.of("error", result.getMessage()))
@@ -138,22 +182,58 @@ public class AnalyticsResource {
     @Path("/events/batch")
     public Response ingestBatch(List<ViewEvent> events) {
         try {
-            EventProcessingResult result = eventProcessorService.ingestBatch(events);
-            
-            if (result.isSuccess()) {
-                return Response.ok(Map.of(
-                        "status", "success",
-                        "processed", events.size(),
-                        "message", result.getMessage()
-                )).build();
-            } else {
+            return batchResponse(eventProcessorService.ingestBatch(events));
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(Map.of("error", e.getMessage()))
+                    .build();
+        }
+    }
+
+    /**
+     * Ingest a batch of events of any size: the JSON array is parsed token by token and events are
+     * persisted in chunks while the body is still being read, so memory does not grow with the payload.
+     * Events are bound like those of /events/batch. A malformed body or an event that does not bind stops
+     * the ingestion with a 400: the events before the error are kept and reported.
+     */
+    @POST
+    @Path("/events/batch/stream")
+    public Response ingestBatchStream(InputStream body) {
+        try (ViewEventStreamReader reader = new ViewEventStreamReader(body)) {
+            BatchProcessingResult result = eventProcessorService.ingestBatch(reader);
+            if (reader.getError() != null) {
                 return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(Map.of("error", result.getMessage()))
+                        .entity(Map.of(
+                            "error", reader.getError(),
+                            "processed", result.getSuccessfulEvents(),
+                            "deduplicated", result.getDuplicateEvents(),
+                            "failed", result.getFailedEvents()
+                        ))
                         .build();
             }
+            return batchResponse(result);
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(Map.of("error", e.getMessage()))
+                    .entity(Map.of("error", String.valueOf(e.getMessage())))
+                    .build();
+        }
+    }
+
+    private Response batchResponse(BatchProcessingResult result) {
+        // A retried batch whose events are all already stored is a success
+        if (result.getSuccessfulEvents() + result.getDuplicateEvents() > 0) {
+            return Response.ok(Map.of(
+                    "status", result.getFailedEvents() == 0 ? "success" : "partial",
+                    "processed", result.getSuccessfulEvents(),
+                    "deduplicated", result.getDuplicateEvents(),
+                    "failed", result.getFailedEvents(),
+                    "failedEventIds", result.getFailedEventIds(),
+                    "durationMs", result.getTotalProcessingTimeMs(),
+                    "message", result.getMessage()
+            )).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", result.getMessage()))
                     .build();
         }
     }
@@ -0,0 +1,214 @@
+package com.streaming.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streaming.model.RealTimeStats;
+import com.streaming.service.AnalyticsService;
+import com.streaming.service.AnalyticsService.AnomalyDetection;
+import com.streaming.service.AnomalyDetector;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of the real-time stats stream: one tick computes and serializes the snapshot once,
+ * then a single SseBroadcaster pushes it to every subscriber. Closed or failing sinks are dropped
+ * by the broadcaster, and ticks are skipped while nobody is listening.
+ *
+ * Two stream modes share the tick: "full" sends the whole stats object every second, "delta" sends
+ * a snapshot on connect, then only the changed fields with increasing event ids (see {@link StatsDeltaLog}).
+ * Both streams also receive an "anomaly" event, without id, for each anomaly flagged since the last tick.
+ */
+@ApplicationScoped
+public class RealtimeStatsBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeStatsBroadcaster.class);
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int DELTA_HISTORY = 300;
+    private static final long RECONNECT_DELAY_MS = 3000;
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<Map<String, Object>>() {};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    /** Registered sinks, tracked only to know whether anyone is listening */
+    private final Set<SseEventSink> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<SseEventSink> deltaSubscribers = ConcurrentHashMap.newKeySet();
+    private final StatsDeltaLog deltaLog = new StatsDeltaLog(DELTA_HISTORY);
+
+    @Inject
+    private AnalyticsService analyticsService;
+
+    @Inject
+    private AnomalyDetector anomalyDetector;
+
+    private Sse sse;
+    private SseBroadcaster broadcaster;
+    private SseBroadcaster deltaBroadcaster;
+    private ScheduledExecutorService scheduler;
+    private long lastAnomalySequence;
+
+    /**
+     * Register a new client of the full stream
+     */
+    public synchronized void subscribe(SseEventSink sink, Sse sse) {
+        start(sse);
+        subscribers.add(sink);
+        broadcaster.register(sink);
+    }
+
+    /**
+     * Register a new client of the delta stream; a client resuming with a Last-Event-ID still in the
+     * history is replayed the deltas it missed, any other client gets a snapshot first
+     */
+    public synchronized void subscribeDeltas(SseEventSink sink, Sse sse, String lastEventId) {
+        start(sse);
+        List<Map<String, Object>> missed = lastEventId != null ? deltaLog.since(parseEventId(lastEventId)) : null;
+        try {
+            if (missed != null) {
+                long id = deltaLog.getLastId() - missed.size();
+                for (Map<String, Object> delta : missed) {
+                    sink.send(event("delta", ++id, delta));
+                }
+            } else if (deltaLog.getLastId() > 0) {
+                sink.send(event("snapshot", deltaLog.getLastId(), deltaLog.getState()));
+            }
+        } catch (Exception e) {
+            logger.debug("Could not initialize delta subscriber: {}", e.getMessage());
+            sink.close();
+            return;
+        }
+        deltaSubscribers.add(sink);
+        deltaBroadcaster.register(sink);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size() + deltaSubscribers.size();
+    }
+
+    private void start(Sse sse) {
+        if (broadcaster != null) {
+            return;
+        }
+        this.sse = sse;
+        this.broadcaster = newBroadcaster(subscribers);
+        this.deltaBroadcaster = newBroadcaster(deltaSubscribers);
+        this.lastAnomalySequence = anomalyDetector.getLastSequence();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "realtime-stats-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private SseBroadcaster newBroadcaster(Set<SseEventSink> sinks) {
+        SseBroadcaster created = sse.newBroadcaster();
+        created.onClose(sinks::remove);
+        created.onError((failed, error) -> {
+            logger.debug("Dropping SSE subscriber after send failure: {}", error.getMessage());
+            sinks.remove(failed);
+        });
+        return created;
+    }
+
+    private void tick() {
+        // Sinks closed by the client are unsubscribed by the broadcaster on their next failed send
+        subscribers.removeIf(SseEventSink::isClosed);
+        deltaSubscribers.removeIf(SseEventSink::isClosed);
+        if (subscribers.isEmpty() && deltaSubscribers.isEmpty()) {
+            // Anomalies flagged while nobody listens are not replayed to later subscribers
+            lastAnomalySequence = anomalyDetector.getLastSequence();
+            return;
+        }
+        try {
+            RealTimeStats stats = analyticsService.getRealTimeStatistics();
+            Map<String, Object> fields = objectMapper.convertValue(
+                    stats != null ? stats : new RealTimeStats(), FIELDS);
+            if (!subscribers.isEmpty()) {
+                broadcaster.broadcast(sse.newEventBuilder()
+                        .name("stats")
+                        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                        .data(String.class, objectMapper.writeValueAsString(fields))
+                        .build());
+            }
+            if (!deltaSubscribers.isEmpty()) {
+                publishDelta(fields);
+            }
+            publishAnomalies();
+        } catch (Exception e) {
+            logger.error("Failed to broadcast real-time stats", e);
+        }
+    }
+
+    /**
+     * Serialized with {@link #subscribeDeltas} so that a new client sees either the replay or the broadcast
+     */
+    private synchronized void publishDelta(Map<String, Object> fields) throws Exception {
+        Map<String, Object> delta = deltaLog.append(fields);
+        if (delta != null) {
+            deltaBroadcaster.broadcast(event("delta", deltaLog.getLastId(), delta));
+        }
+    }
+
+    private void publishAnomalies() throws Exception {
+        long last = anomalyDetector.getLastSequence();
+        if (last == lastAnomalySequence) {
+            return;
+        }
+        List<AnomalyDetection> anomalies = anomalyDetector.getAnomaliesBetween(lastAnomalySequence, last);
+        lastAnomalySequence = last;
+        for (AnomalyDetection anomaly : anomalies) {
+            OutboundSseEvent event = sse.newEventBuilder()
+                    .name("anomaly")
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(String.class, objectMapper.writeValueAsString(anomaly))
+                    .build();
+            broadcaster.broadcast(event);
+            deltaBroadcaster.broadcast(event);
+        }
+    }
+
+    private OutboundSseEvent event(String name, long id, Map<String, Object> data) throws Exception {
+        return sse.newEventBuilder()
+                .name(name)
+                .id(String.valueOf(id))
+                .reconnectDelay(RECONNECT_DELAY_MS)
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, objectMapper.writeValueAsString(data))
+                .build();
+    }
+
+    private static long parseEventId(String lastEventId) {
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (broadcaster != null) {
+            broadcaster.close();
+            deltaBroadcaster.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.streaming.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Delta encoding of successive real-time stats snapshots.
+ *
+ * Each snapshot is compared field by field with the previous one; only changed fields are kept,
+ * and list fields (top videos) are reduced to the ranks that moved. Every non-empty delta gets the
+ * next id and is kept in a bounded ring so that a client reconnecting with Last-Event-ID can be
+ * replayed the deltas it missed instead of receiving a new snapshot. Not thread-safe.
+ */
+final class StatsDeltaLog {
+
+    /** Field that changes on every tick and is only sent along with real changes */
+    private static final String TIMESTAMP_FIELD = "timestamp";
+
+    private final long[] ids;
+    private final List<Map<String, Object>> deltas;
+    private long lastId;
+    private int size;
+    private Map<String, Object> state = Collections.emptyMap();
+
+    StatsDeltaLog(int capacity) {
+        this.ids = new long[capacity];
+        this.deltas = new ArrayList<>(Collections.nCopies(capacity, null));
+    }
+
+    /**
+     * Record a new snapshot
+     *
+     * @return the delta against the previous snapshot, or null if nothing but the timestamp changed
+     */
+    Map<String, Object> append(Map<String, Object> snapshot) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : snapshot.entrySet()) {
+            String name = field.getKey();
+            Object previous = state.get(name);
+            Object current = field.getValue();
+            if (TIMESTAMP_FIELD.equals(name) || (state.containsKey(name) && Objects.equals(previous, current))) {
+                continue;
+            }
+            if (previous instanceof List && current instanceof List) {
+                delta.put(name, rankChanges((List<?>) previous, (List<?>) current));
+            } else {
+                delta.put(name, current);
+            }
+        }
+        if (delta.isEmpty()) {
+            return null;
+        }
+        if (snapshot.containsKey(TIMESTAMP_FIELD)) {
+            delta.put(TIMESTAMP_FIELD, snapshot.get(TIMESTAMP_FIELD));
+        }
+
+        state = snapshot;
+        lastId++;
+        int slot = (int) (lastId % ids.length);
+        ids[slot] = lastId;
+        deltas.set(slot, delta);
+        size = Math.min(size + 1, ids.length);
+        return delta;
+    }
+
+    /**
+     * Deltas published after {@code eventId}, oldest first
+     *
+     * @return null if they are no longer all in the ring (or the id is unknown): a snapshot is needed
+     */
+    List<Map<String, Object>> since(long eventId) {
+        long oldest = lastId - size + 1;
+        if (eventId > lastId || eventId + 1 < oldest) {
+            return null;
+        }
+        List<Map<String, Object>> missed = new ArrayList<>((int) (lastId - eventId));
+        for (long id = eventId + 1; id <= lastId; id++) {
+            missed.add(deltas.get((int) (id % ids.length)));
+        }
+        return missed;
+    }
+
+    long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Full state as of {@link #getLastId()}
+     */
+    Map<String, Object> getState() {
+        return state;
+    }
+
+    /**
+     * {"length": n, "ranks": {"index": value}} for the positions that changed
+     */
+    private static Map<String, Object> rankChanges(List<?> previous, List<?> current) {
+        Map<String, Object> ranks = new LinkedHashMap<>();
+        for (int i = 0; i < current.size(); i++) {
+            Object value = current.get(i);
+            if (i >= previous.size() || !Objects.equals(previous.get(i), value)) {
+                ranks.put(String.valueOf(i), value);
+            }
+        }
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("length", current.size());
+        change.put("ranks", ranks);
+        return change;
+    }
+}
@@ -0,0 +1,119 @@
+package com.streaming.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streaming.model.ViewEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of view events one event at a time from the Jackson token stream, without
+ * materializing the array: only the event being read is held in memory.
+ *
+ * Each element is bound by Jackson with the defaults of the JAX-RS provider that binds /events/batch,
+ * so both endpoints accept the same events: a field that does not bind (unknown field, duration that
+ * is not a number) is an error, and a null element is read as a null event, which ingestion counts as
+ * invalid. A malformed body or element ends the iteration: the events read so far are returned and
+ * {@link #getError()} describes the problem.
+ */
+class ViewEventStreamReader implements Iterator<ViewEvent>, Closeable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonParser parser;
+    /** Element read ahead (null for a JSON null), valid while {@code buffered} */
+    private ViewEvent next;
+    private boolean buffered;
+    private boolean started;
+    private boolean finished;
+    private int count;
+    private String error;
+
+    ViewEventStreamReader(InputStream body) throws IOException {
+        this.parser = MAPPER.getFactory().createParser(body);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!buffered && !finished) {
+            try {
+                buffered = readNext();
+            } catch (JsonMappingException e) {
+                error = "Invalid event after " + count + " events: " + e.getOriginalMessage();
+            } catch (IOException | RuntimeException e) {
+                String message = e instanceof JsonProcessingException
+                        ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage();
+                error = "Malformed JSON after " + count + " events: " + message;
+            }
+            if (!buffered) {
+                finished = true;
+            }
+        }
+        return buffered;
+    }
+
+    @Override
+    public ViewEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ViewEvent event = next;
+        next = null;
+        buffered = false;
+        count++;
+        return event;
+    }
+
+    /**
+     * Description of the error that ended the iteration, null if the whole array was read
+     */
+    String getError() {
+        return error;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Read the next element into {@code next}
+     *
+     * @return false at the end of the array
+     */
+    private boolean readNext() throws IOException {
+        if (!started) {
+            started = true;
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return false;
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new IOException("expected an array of events");
+            }
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            if (parser.nextToken() != null) {
+                throw new IOException("unexpected content after the array of events");
+            }
+            return false;
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            next = null;
+            return true;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("expected an event object, found " + token);
+        }
+        next = MAPPER.readValue(parser, ViewEvent.class);
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.streaming.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single MongoClient (and connection pool) shared by every repository of the webapp.
+ *
+ * Configured by {@link MongoSettings} from the MONGODB_* environment variables, like the dashboard.
+ */
+@ApplicationScoped
+public class MongoClientProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoClientProducer.class);
+
+    @Inject
+    private MongoPoolMetrics poolMetrics;
+
+    @Produces
+    @ApplicationScoped
+    public MongoClient mongoClient() {
+        MongoClientSettings.Builder builder = MongoSettings.clientSettings("analytics-api");
+        builder.applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(poolMetrics));
+
+        MongoClientSettings settings = builder.build();
+        logger.info("Creating shared MongoClient (pool {}-{}, maxWait {} ms, maxConnecting {})",
+                settings.getConnectionPoolSettings().getMinSize(), settings.getConnectionPoolSettings().getMaxSize(),
+                settings.getConnectionPoolSettings().getMaxWaitTime(TimeUnit.MILLISECONDS),
+                settings.getConnectionPoolSettings().getMaxConnecting());
+        return MongoClients.create(settings);
+    }
+
+    @Produces
+    @ApplicationScoped
+    public MongoDatabase database(MongoClient client) {
+        return client.getDatabase(MongoSettings.databaseName());
+    }
+
+    public void close(@Disposes MongoClient client) {
+        client.close();
+    }
+}
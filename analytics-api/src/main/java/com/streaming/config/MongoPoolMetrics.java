@@ -0,0 +1,78 @@
+package com.streaming.config;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool metrics of the shared MongoClient, fed by the driver's pool events
+ */
+@ApplicationScoped
+public class MongoPoolMetrics implements ConnectionPoolListener {
+
+    private final AtomicLong openConnections = new AtomicLong();
+    private final AtomicLong checkedOutConnections = new AtomicLong();
+    private final AtomicLong waitingForConnection = new AtomicLong();
+    private final LongAdder checkOuts = new LongAdder();
+    private final LongAdder checkOutFailures = new LongAdder();
+    private final LongAdder checkOutWaitNanos = new LongAdder();
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        waitingForConnection.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        waitingForConnection.decrementAndGet();
+        checkedOutConnections.incrementAndGet();
+        checkOuts.increment();
+        checkOutWaitNanos.add(event.getElapsedTime(java.util.concurrent.TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        waitingForConnection.decrementAndGet();
+        checkOutFailures.increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOutConnections.decrementAndGet();
+    }
+
+    /**
+     * Snapshot for the /stats endpoint
+     */
+    public Map<String, Object> snapshot() {
+        long count = checkOuts.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("openConnections", openConnections.get());
+        metrics.put("inUseConnections", checkedOutConnections.get());
+        metrics.put("waitQueueSize", waitingForConnection.get());
+        metrics.put("checkOuts", count);
+        metrics.put("checkOutFailures", checkOutFailures.sum());
+        metrics.put("averageCheckOutWaitMs", count > 0 ? checkOutWaitNanos.sum() / 1_000_000.0 / count : 0.0);
+        return metrics;
+    }
+}
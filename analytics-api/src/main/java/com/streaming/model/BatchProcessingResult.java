@@ -10,6 +10,7 @@ public class BatchProcessingResult {
     private int totalEventsProcessed;
     private int successfulEvents;
     private int failedEvents;
+    private int duplicateEvents;
     private long totalProcessingTimeMs;
     private double averageProcessingTimeMs;
     private List<String> failedEventIds;
@@ -38,6 +39,9 @@ public class BatchProcessingResult {
     public int getFailedEvents() { return failedEvents; }
     public void setFailedEvents(int failedEvents) { this.failedEvents = failedEvents; }
 
+    public int getDuplicateEvents() { return duplicateEvents; }
+    public void setDuplicateEvents(int duplicateEvents) { this.duplicateEvents = duplicateEvents; }
+
     public long getTotalProcessingTimeMs() { return totalProcessingTimeMs; }
     public void setTotalProcessingTimeMs(long totalProcessingTimeMs) { this.totalProcessingTimeMs = totalProcessingTimeMs; }
 
@@ -12,6 +12,8 @@ public class EventProcessingResult {
     private String videoId;
     private String userId;
     private VideoStats updatedStats;
+    private boolean throttled;
+    private boolean duplicate;
 
     // Constructors
     public EventProcessingResult() {}
@@ -53,4 +55,10 @@ public class EventProcessingResult {
 
     public VideoStats getUpdatedStats() { return updatedStats; }
     public void setUpdatedStats(VideoStats updatedStats) { this.updatedStats = updatedStats; }
+
+    public boolean isThrottled() { return throttled; }
+    public void setThrottled(boolean throttled) { this.throttled = throttled; }
+
+    public boolean isDuplicate() { return duplicate; }
+    public void setDuplicate(boolean duplicate) { this.duplicate = duplicate; }
 }
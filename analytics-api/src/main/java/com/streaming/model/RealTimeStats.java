@@ -4,9 +4,31 @@ import java.util.List;
 
 /**
  * Représente les statistiques temps réel du système
+ *
+ * Les compteurs en mémoire et la requête MongoDB de secours partagent les mêmes définitions:
+ * activeUsers compte les utilisateurs distincts des dernières {@link #ACTIVE_USERS_WINDOW_MILLIS},
+ * currentViewers ceux des dernières {@link #CURRENT_VIEWERS_WINDOW_MILLIS}. Les deux sont des
+ * estimations HyperLogLog côté mémoire et des comptes exacts côté MongoDB.
+ * averageWatchTime porte sur les mêmes 24 heures; topVideoIds classe les vidéos de la dernière heure,
+ * ou des 24 heures quand l'heure est vide. Seul totalEventsProcessed couvre tout l'historique.
  */
 public class RealTimeStats {
 
+    /**
+     * Fenêtre des utilisateurs actifs: 24 heures
+     */
+    public static final long ACTIVE_USERS_WINDOW_MILLIS = 24 * 60 * 60_000L;
+
+    /**
+     * Fenêtre du classement des vidéos: 1 heure
+     */
+    public static final long TOP_VIDEOS_WINDOW_MILLIS = 60 * 60_000L;
+
+    /**
+     * Fenêtre des spectateurs en cours: 5 minutes
+     */
+    public static final long CURRENT_VIEWERS_WINDOW_MILLIS = 5 * 60_000L;
+
     private long currentViewers;
     private long eventsPerSecond;
     private double averageWatchTime;
@@ -1,5 +1,8 @@
 package com.streaming.model;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Entité représentant le profil d'un utilisateur
  */
@@ -11,6 +14,10 @@ public class UserProfile {
     private int videosWatched;
     private String lastActivity;
     private String favoriteDevice;
+    private int sessions;
+    private Map<String, Long> deviceViews = new HashMap<>();
+    private Map<String, Long> categoryViews = new HashMap<>();
+    private long[] hourlyViews = new long[24];
 
     // Constructors
     public UserProfile() {}
@@ -43,4 +50,16 @@ public class UserProfile {
 
     public String getFavoriteDevice() { return favoriteDevice; }
     public void setFavoriteDevice(String favoriteDevice) { this.favoriteDevice = favoriteDevice; }
+
+    public int getSessions() { return sessions; }
+    public void setSessions(int sessions) { this.sessions = sessions; }
+
+    public Map<String, Long> getDeviceViews() { return deviceViews; }
+    public void setDeviceViews(Map<String, Long> deviceViews) { this.deviceViews = deviceViews; }
+
+    public Map<String, Long> getCategoryViews() { return categoryViews; }
+    public void setCategoryViews(Map<String, Long> categoryViews) { this.categoryViews = categoryViews; }
+
+    public long[] getHourlyViews() { return hourlyViews; }
+    public void setHourlyViews(long[] hourlyViews) { this.hourlyViews = hourlyViews; }
 }
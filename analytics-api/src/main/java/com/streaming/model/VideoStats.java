@@ -6,6 +6,9 @@ package com.streaming.model;
 public class VideoStats {
 
     private String videoId;
+    private String title;
+    private String category;
+    private int duration;
     private long totalViews;
     private long totalWatchTime;
     private double averageWatchTime;
@@ -29,6 +32,15 @@ public class VideoStats {
     public String getVideoId() { return videoId; }
     public void setVideoId(String videoId) { this.videoId = videoId; }
 
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public int getDuration() { return duration; }
+    public void setDuration(int duration) { this.duration = duration; }
+
     public long getTotalViews() { return totalViews; }
     public void setTotalViews(long totalViews) { this.totalViews = totalViews; }
 
@@ -1,5 +1,9 @@
 package com.streaming.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
 /**
  * Entité représentant un événement de visualisation
  */
@@ -9,6 +13,8 @@ public class ViewEvent {
     private String userId;
     private String videoId;
     private String timestamp;
+    /** Horodatage lu une fois à l'ingestion ou au chargement (epoch millis), 0 s'il n'a pas été lu */
+    private long timestampMillis;
     private String action;
     private int duration;
     private String quality;
@@ -39,9 +45,20 @@ public class ViewEvent {
     public String getVideoId() { return videoId; }
     public void setVideoId(String videoId) { this.videoId = videoId; }
 
-    public String getTimestamp() { return timestamp; }
+    public String getTimestamp() {
+        // Événements chargés depuis MongoDB: le texte ISO-8601 n'est produit qu'à la demande
+        if (timestamp == null && timestampMillis != 0) {
+            timestamp = Instant.ofEpochMilli(timestampMillis).toString();
+        }
+        return timestamp;
+    }
     public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
 
+    @JsonIgnore
+    public long getTimestampMillis() { return timestampMillis; }
+    @JsonIgnore
+    public void setTimestampMillis(long timestampMillis) { this.timestampMillis = timestampMillis; }
+
     public String getAction() { return action; }
     public void setAction(String action) { this.action = action; }
 
@@ -0,0 +1,138 @@
+package com.streaming.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.streaming.model.UserProfile;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository for the user_profiles collection: one document per user holding counters
+ * (watch time, views, sessions, views per device / category / hour of day)
+ */
+@ApplicationScoped
+public class UserProfileRepository {
+
+    @Inject
+    private MongoDatabase database;
+
+    private MongoCollection<Document> collection;
+
+    @PostConstruct
+    void init() {
+        this.collection = database.getCollection("user_profiles");
+    }
+
+    /**
+     * Add counter increments to the profiles with one unordered bulkWrite of $inc upserts
+     * @param increments Profiles whose counters are the amounts to add
+     * @return indexes (in {@code increments}) of the updates that could not be written
+     */
+    public List<Integer> incrementAll(List<UserProfile> increments) {
+        if (increments.isEmpty()) return Collections.emptyList();
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+        List<WriteModel<Document>> updates = new ArrayList<>(increments.size());
+        for (UserProfile increment : increments) {
+            updates.add(new UpdateOneModel<>(new Document("userId", increment.getUserId()),
+                    incrementUpdate(increment), upsert));
+        }
+        try {
+            collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+            return Collections.emptyList();
+        } catch (MongoBulkWriteException e) {
+            List<Integer> failed = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failed.add(error.getIndex());
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * Gets a user profile by ID (single indexed lookup)
+     * @param userId The user ID
+     * @return The stored counters, or null if the user has no profile yet
+     */
+    public UserProfile findByUserId(String userId) {
+        Document doc = collection.find(new Document("userId", userId)).first();
+        return doc != null ? documentToProfile(doc) : null;
+    }
+
+    private Document incrementUpdate(UserProfile increment) {
+        Document inc = new Document()
+                .append("totalWatchTime", increment.getTotalWatchTime())
+                .append("videosWatched", increment.getVideosWatched())
+                .append("sessions", increment.getSessions());
+        increment.getDeviceViews().forEach((device, views) -> inc.append("deviceViews." + fieldName(device), views));
+        increment.getCategoryViews().forEach((category, views) -> inc.append("categoryViews." + fieldName(category), views));
+        long[] hourly = increment.getHourlyViews();
+        for (int hour = 0; hour < hourly.length; hour++) {
+            if (hourly[hour] > 0) {
+                inc.append("hourlyViews." + hour, hourly[hour]);
+            }
+        }
+        Document update = new Document("$inc", inc);
+        if (increment.getLastActivity() != null) {
+            update.append("$max", new Document("lastActivity", Date.from(Instant.parse(increment.getLastActivity()))));
+        }
+        return update;
+    }
+
+    private UserProfile documentToProfile(Document doc) {
+        UserProfile profile = new UserProfile();
+        profile.setUserId(doc.getString("userId"));
+        profile.setTotalWatchTime(intValue(doc.get("totalWatchTime")));
+        profile.setVideosWatched(intValue(doc.get("videosWatched")));
+        profile.setSessions(intValue(doc.get("sessions")));
+        Date lastActivity = doc.getDate("lastActivity");
+        profile.setLastActivity(lastActivity != null ? lastActivity.toInstant().toString() : null);
+        readCounters(doc.get("deviceViews", Document.class), profile.getDeviceViews());
+        readCounters(doc.get("categoryViews", Document.class), profile.getCategoryViews());
+        Document hourly = doc.get("hourlyViews", Document.class);
+        if (hourly != null) {
+            for (Map.Entry<String, Object> entry : hourly.entrySet()) {
+                int hour = Integer.parseInt(entry.getKey());
+                if (hour >= 0 && hour < profile.getHourlyViews().length && entry.getValue() instanceof Number) {
+                    profile.getHourlyViews()[hour] = ((Number) entry.getValue()).longValue();
+                }
+            }
+        }
+        return profile;
+    }
+
+    private void readCounters(Document counters, Map<String, Long> target) {
+        if (counters == null) return;
+        for (Map.Entry<String, Object> entry : counters.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                target.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+            }
+        }
+    }
+
+    /**
+     * Device and category names become field names: '.' and a leading '$' are not allowed there
+     */
+    private static String fieldName(String key) {
+        String name = key.replace('.', '_');
+        return name.startsWith("$") ? "_" + name.substring(1) : name;
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+}
@@ -1,86 +1,84 @@
 package com.streaming.repository;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.ReplaceOptions;
 import com.streaming.model.Video;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
-import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
-import jakarta.transaction.Transactional;
+import jakarta.inject.Inject;
+import org.bson.Document;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 
 /**
- * Repository for video metadata operations
+ * Repository for video metadata operations, backed by the {@code videos} collection
  */
 @ApplicationScoped
 public class VideoRepository {
 
-    @PersistenceContext
-    private EntityManager entityManager;
-    
+    @Inject
+    private MongoDatabase database;
+
+    private MongoCollection<Document> collection;
+
+    @PostConstruct
+    void init() {
+        this.collection = database.getCollection("videos");
+    }
+
     /**
      * Finds a video by ID
      * @param videoId The video ID
      * @return The video or null if not found
      */
     public Video findById(String videoId) {
-        return entityManager.find(Video.class, videoId);
+        Document doc = collection.find(new Document("videoId", videoId)).first();
+        return doc != null ? documentToVideo(doc) : null;
     }
-    
+
     /**
      * Finds videos by category
      * @param category The category name
      * @return List of videos in the category
      */
     public List<Video> findByCategory(String category) {
-        TypedQuery<Video> query = entityManager.createQuery(
-                "SELECT v FROM Video v WHERE v.category = :category", 
-                Video.class);
-        query.setParameter("category", category);
-        return query.getResultList();
+        return findAll(new Document("category", category), new Document(), 0, 0);
     }
-    
+
     /**
      * Finds videos by creator
      * @param creator The creator name/ID
      * @return List of videos by the creator
      */
     public List<Video> findByCreator(String creator) {
-        TypedQuery<Video> query = entityManager.createQuery(
-                "SELECT v FROM Video v WHERE v.creator = :creator", 
-                Video.class);
-        query.setParameter("creator", creator);
-        return query.getResultList();
+        return findAll(new Document("creator", creator), new Document(), 0, 0);
     }
-    
+
     /**
      * Searches videos by title (case-insensitive partial match)
      * @param titleQuery The search query
      * @return List of matching videos
      */
     public List<Video> searchByTitle(String titleQuery) {
-        TypedQuery<Video> query = entityManager.createQuery(
-                "SELECT v FROM Video v WHERE LOWER(v.title) LIKE LOWER(:titleQuery)", 
-                Video.class);
-        query.setParameter("titleQuery", "%" + titleQuery + "%");
-        return query.getResultList();
+        Pattern pattern = Pattern.compile(Pattern.quote(titleQuery), Pattern.CASE_INSENSITIVE);
+        return findAll(new Document("title", pattern), new Document(), 0, 0);
     }
-    
+
     /**
      * Saves a video
      * @param video The video to save
      * @return The saved video
      */
-    @Transactional
     public Video save(Video video) {
-        if (entityManager.find(Video.class, video.getVideoId()) == null) {
-            entityManager.persist(video);
-            return video;
-        } else {
-            return entityManager.merge(video);
-        }
+        collection.replaceOne(new Document("videoId", video.getVideoId()), videoToDocument(video),
+                new ReplaceOptions().upsert(true));
+        return video;
     }
-    
+
     /**
      * Gets all videos with pagination
      * @param offset Starting position
@@ -88,22 +86,61 @@ public class VideoRepository {
      * @return Paginated list of videos
      */
     public List<Video> findAll(int offset, int limit) {
-        TypedQuery<Video> query = entityManager.createQuery(
-                "SELECT v FROM Video v ORDER BY v.uploadDate DESC", 
-                Video.class);
-        query.setFirstResult(offset);
-        query.setMaxResults(limit);
-        return query.getResultList();
+        return findAll(new Document(), new Document("uploadDate", -1), offset, limit);
     }
-    
+
     /**
      * Counts total number of videos
      * @return Total count
      */
     public long countVideos() {
-        TypedQuery<Long> query = entityManager.createQuery(
-                "SELECT COUNT(v) FROM Video v", 
-                Long.class);
-        return query.getSingleResult();
+        return collection.estimatedDocumentCount();
+    }
+
+    /**
+     * Streams the videos inserted after a given _id, in _id order, for incremental catalog loads
+     * @param afterId The last _id already loaded, or null for a full scan
+     * @param consumer Receives the _id and the video of each document
+     */
+    public void forEachVideoAfter(Object afterId, BiConsumer<Object, Video> consumer) {
+        Document filter = afterId != null ? new Document("_id", new Document("$gt", afterId)) : new Document();
+        for (Document doc : collection.find(filter).sort(new Document("_id", 1)).batchSize(5000)) {
+            consumer.accept(doc.get("_id"), documentToVideo(doc));
+        }
+    }
+
+    private List<Video> findAll(Document filter, Document sort, int offset, int limit) {
+        List<Video> videos = new ArrayList<>();
+        for (Document doc : collection.find(filter).sort(sort).skip(offset).limit(limit)) {
+            videos.add(documentToVideo(doc));
+        }
+        return videos;
+    }
+
+    private Document videoToDocument(Video video) {
+        return new Document()
+                .append("videoId", video.getVideoId())
+                .append("title", video.getTitle())
+                .append("category", video.getCategory())
+                .append("duration", video.getDuration())
+                .append("uploadDate", video.getUploadDate())
+                .append("views", video.getViews())
+                .append("likes", video.getLikes());
+    }
+
+    private Video documentToVideo(Document doc) {
+        Object uploadDate = doc.get("uploadDate");
+        return new Video(
+                doc.getString("videoId"),
+                doc.getString("title"),
+                doc.getString("category"),
+                intValue(doc.get("duration")),
+                uploadDate != null ? uploadDate.toString() : null,
+                intValue(doc.get("views")),
+                intValue(doc.get("likes")));
+    }
+
+    private int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
     }
 }
@@ -0,0 +1,117 @@
+package com.streaming.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.streaming.model.VideoStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository for the video_stats collection: one document per video holding its view and
+ * watch time totals, maintained by increments instead of event scans
+ */
+@ApplicationScoped
+public class VideoStatsRepository {
+
+    public static final String COLLECTION = "video_stats";
+
+    @Inject
+    private MongoDatabase database;
+
+    private MongoCollection<Document> collection;
+
+    @PostConstruct
+    void init() {
+        this.collection = database.getCollection(COLLECTION);
+    }
+
+    /**
+     * Add view and watch time increments with one unordered bulkWrite of $inc upserts
+     * @param increments Stats whose totals are the amounts to add, lastUpdated being the latest event time
+     * @return indexes (in {@code increments}) of the updates that could not be written
+     */
+    public List<Integer> incrementAll(List<VideoStats> increments) {
+        if (increments.isEmpty()) return Collections.emptyList();
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+        List<WriteModel<Document>> updates = new ArrayList<>(increments.size());
+        for (VideoStats increment : increments) {
+            Document update = new Document("$inc", new Document()
+                    .append("totalViews", increment.getTotalViews())
+                    .append("totalWatchTime", increment.getTotalWatchTime()));
+            if (increment.getLastUpdated() != null) {
+                update.append("$max", new Document("lastUpdated", Date.from(Instant.parse(increment.getLastUpdated()))));
+            }
+            updates.add(new UpdateOneModel<>(new Document("videoId", increment.getVideoId()), update, upsert));
+        }
+        try {
+            collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+            return Collections.emptyList();
+        } catch (MongoBulkWriteException e) {
+            List<Integer> failed = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failed.add(error.getIndex());
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * Gets the totals of a video (single lookup on the unique videoId index)
+     * @param videoId The video ID
+     * @return The stored totals, or null if the video has no stats yet
+     */
+    public VideoStats findByVideoId(String videoId) {
+        Document doc = collection.find(new Document("videoId", videoId)).first();
+        return doc != null ? documentToStats(doc) : null;
+    }
+
+    /**
+     * Gets the most viewed videos, walking the totalViews index
+     * @param limit Maximum number of videos
+     * @return Stats sorted by descending view count
+     */
+    public List<VideoStats> findTopByViews(int limit) {
+        List<VideoStats> top = new ArrayList<>(limit);
+        for (Document doc : collection.find().sort(new Document("totalViews", -1)).limit(limit)) {
+            top.add(documentToStats(doc));
+        }
+        return top;
+    }
+
+    /**
+     * @return true if no video has stats yet (fresh deployment, backfill needed)
+     */
+    public boolean isEmpty() {
+        return collection.find().limit(1).first() == null;
+    }
+
+    private VideoStats documentToStats(Document doc) {
+        VideoStats stats = new VideoStats();
+        stats.setVideoId(doc.getString("videoId"));
+        stats.setTotalViews(longValue(doc.get("totalViews")));
+        stats.setTotalWatchTime(longValue(doc.get("totalWatchTime")));
+        stats.setAverageWatchTime(stats.getTotalViews() > 0
+                ? (double) stats.getTotalWatchTime() / stats.getTotalViews() : 0.0);
+        Date lastUpdated = doc.getDate("lastUpdated");
+        stats.setLastUpdated(lastUpdated != null ? lastUpdated.toInstant().toString() : null);
+        return stats;
+    }
+
+    private static long longValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,181 @@
+package com.streaming.service;
+
+import com.streaming.repository.EventRepository;
+import com.streaming.service.aggregation.EventTimestamps;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reconstruction des agrégats en mémoire au démarrage de l'application
+ * Exécutée en arrière-plan pour ne pas bloquer le déploiement
+ *
+ * Les agrégats enregistrent les événements persistés dès le démarrage; les reconstructions ne relisent que
+ * les événements écrits avant (borne _id prise par {@link EventRepository} à son initialisation), si bien
+ * qu'aucun événement n'est compté deux fois quelle que soit la durée de la reconstruction.
+ * L'historique complet n'est jamais relu côté client: les totaux depuis l'origine viennent d'agrégations
+ * $group côté serveur, et les fenêtres glissantes d'un seul rejeu borné à la plus longue d'entre elles.
+ */
+@ApplicationScoped
+public class AnalyticsBootstrap {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsBootstrap.class);
+
+    @Inject
+    private EventRepository eventRepository;
+
+    @Inject
+    private VideoCatalog videoCatalog;
+
+    @Inject
+    private TopVideosEngine topVideosEngine;
+
+    @Inject
+    private RollingAggregates rollingAggregates;
+
+    @Inject
+    private UniqueCounts uniqueCounts;
+
+    @Inject
+    private HeavyHitters heavyHitters;
+
+    @Inject
+    private CoViewIndex coViewIndex;
+
+    @Inject
+    private CategoryEngagement categoryEngagement;
+
+    @Inject
+    private RecommendationBatchJob recommendationBatchJob;
+
+    @Inject
+    private VideoStatsAggregator videoStatsAggregator;
+
+    @Inject
+    private KpiEngine kpiEngine;
+
+    @Inject
+    private RetentionManager retentionManager;
+
+    public void onStartup(@Observes @Initialized(ApplicationScoped.class) Object init) {
+        ExecutorService warmup = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "analytics-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        warmup.submit(this::rebuildAll);
+        warmup.shutdown();
+    }
+
+    private void rebuildAll() {
+        // Horodatages encore stockés en texte convertis en dates, pour que les filtres de fenêtre restent
+        // de simples parcours de plage d'index
+        rebuild("event timestamps", this::migrateTimestamps);
+        // Index unique sur eventId: les renvois de clients ne créent plus de doublons
+        rebuild("event id index", this::ensureUniqueEventIds);
+        // Catalogue chargé en premier: les agrégats par catégorie le consultent pendant leur reconstruction
+        rebuild("video catalog", videoCatalog::start);
+        rollingAggregates.setCategoryResolver(videoCatalog::category);
+        rebuild("video stats", videoStatsAggregator::backfill);
+        rebuild("top videos engine", topVideosEngine::rebuild);
+        // Parties cumulées depuis l'origine: agrégations $group côté serveur, sans rejeu des événements
+        rebuild("all-time aggregates", this::seedAllTime);
+        // Fenêtres glissantes: un seul parcours borné de l'historique, partagé par les agrégats
+        rebuild("windowed aggregates", this::replayWindows);
+        // Le lot de recommandations lit l'index de co-visionnage: planifié une fois celui-ci reconstruit
+        rebuild("recommendation batch job", recommendationBatchJob::start);
+        // Purge planifiée en dernier: les reconstructions ci-dessus lisent les événements bruts
+        rebuild("retention manager", retentionManager::start);
+    }
+
+    /**
+     * Initialiser les compteurs depuis l'origine avec des lignes regroupées côté serveur (paires vidéo-utilisateur,
+     * vues par vidéo et durée regardée), au lieu de relire chaque événement
+     */
+    private void seedAllTime() {
+        long start = System.currentTimeMillis();
+        long[] rows = {0, 0};
+        eventRepository.forEachViewerPair((videoId, userId, firstMillis) -> {
+            uniqueCounts.seedViewer(videoId, userId);
+            categoryEngagement.seedViewer(videoId, userId);
+            kpiEngine.seedUser(userId, firstMillis);
+            rows[0]++;
+        });
+        eventRepository.forEachViewCount((videoId, duration, watch, count) -> {
+            if (videoId != null) {
+                categoryEngagement.seedViews(videoId, duration, count);
+            }
+            kpiEngine.seedViews(duration, watch, count);
+            rows[1]++;
+        });
+        // Événements supprimés par la rétention: seuls leurs totaux (vues, temps de visionnage) restent
+        kpiEngine.seedArchived(eventRepository.summaryTotals());
+        categoryEngagement.finishSeed();
+        logger.info("All-time aggregates seeded from {} viewer pairs and {} view counts in {} ms",
+                rows[0], rows[1], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Rejouer une seule fois, dans l'ordre chronologique, les événements de la plus longue fenêtre; chaque
+     * agrégat ne reçoit que ceux de la sienne
+     */
+    private void replayWindows() {
+        List<ReplayTarget> targets = Arrays.asList(rollingAggregates, uniqueCounts, heavyHitters, coViewIndex, kpiEngine);
+        long start = System.currentTimeMillis();
+        long[] windowStarts = new long[targets.size()];
+        long cutoff = start;
+        for (int i = 0; i < windowStarts.length; i++) {
+            windowStarts[i] = start - targets.get(i).getReplayWindowMillis();
+            cutoff = Math.min(cutoff, windowStarts[i]);
+        }
+
+        long[] loaded = {0};
+        eventRepository.forEachEventSinceInTimeOrder(cutoff, event -> {
+            long timestamp = EventTimestamps.toEpochMillis(event, start);
+            for (int i = 0; i < windowStarts.length; i++) {
+                if (timestamp >= windowStarts[i]) {
+                    targets.get(i).replay(event);
+                }
+            }
+            loaded[0]++;
+        });
+        targets.forEach(ReplayTarget::finishReplay);
+
+        logger.info("Windowed aggregates replayed: {} events of the last {} days in {} ms",
+                loaded[0], (start - cutoff) / (24 * 60 * 60_000L), System.currentTimeMillis() - start);
+    }
+
+    private void migrateTimestamps() {
+        long start = System.currentTimeMillis();
+        long converted = eventRepository.migrateStringTimestamps();
+        if (converted > 0) {
+            logger.info("Converted {} string event timestamps to dates in {} ms",
+                    converted, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void ensureUniqueEventIds() {
+        long start = System.currentTimeMillis();
+        long removed = eventRepository.ensureUniqueEventIds();
+        if (removed > 0) {
+            logger.info("Removed {} duplicate events before creating the unique eventId index in {} ms",
+                    removed, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void rebuild(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.error("Failed to rebuild {}", name, e);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.streaming.service;
 
 import com.streaming.model.*;
 import com.streaming.repository.EventRepository;
+import com.streaming.repository.UserRecommendationRepository;
+import com.streaming.service.aggregation.Timeframe;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.slf4j.Logger;
@@ -19,9 +21,55 @@ public class AnalyticsService {
 
     private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
 
+    private static final int REALTIME_TOP_VIDEOS = 5;
+    /** Candidats calculés par recommandation demandée quand le résultat est filtré par catégorie */
+    private static final int CATEGORY_CANDIDATES_FACTOR = 4;
+
     @Inject
     private EventRepository eventRepository;
 
+    @Inject
+    private TopVideosEngine topVideosEngine;
+
+    @Inject
+    private RollingAggregates rollingAggregates;
+
+    @Inject
+    private UniqueCounts uniqueCounts;
+
+    @Inject
+    private HeavyHitters heavyHitters;
+
+    @Inject
+    private TrendingEngine trendingEngine;
+
+    @Inject
+    private CoViewIndex coViewIndex;
+
+    @Inject
+    private UserRecommendationRepository userRecommendationRepository;
+
+    @Inject
+    private RecommendationCache recommendationCache;
+
+    @Inject
+    private VideoCatalog videoCatalog;
+
+    @Inject
+    private CategoryEngagement categoryEngagement;
+
+    @Inject
+    private AnomalyDetector anomalyDetector;
+
+    @Inject
+    private UserProfiles userProfiles;
+
+    @Inject
+    private VideoStatsAggregator videoStatsAggregator;
+
+    @Inject
+    private KpiEngine kpiEngine;
+
     /**
      * Obtenir les vidéos les plus populaires (Top N)
      * Pattern MapReduce: agrégation par videoId avec comptage
@@ -30,9 +78,21 @@ public class AnalyticsService {
         try {
             logger.info("Fetching top {} videos for timeframe: {}", limit, timeframe);
             
-            // Déléguer au repository qui fait l'agrégation MongoDB
-            List<VideoStats> topVideos = eventRepository.getTopVideos(limit, timeframe);
+            // Compteurs incrémentaux en mémoire; repli sur MongoDB tant que la reconstruction n'est pas terminée
+            Timeframe window = Timeframe.parse(timeframe);
+            List<VideoStats> topVideos;
+            if (window == Timeframe.ALL_TIME && topVideosEngine.isReady()) {
+                topVideos = topVideosEngine.getTopVideos(limit);
+            } else if (window != Timeframe.ALL_TIME && rollingAggregates.isReady()) {
+                topVideos = rollingAggregates.getTopVideos(limit, window);
+            } else {
+                topVideos = eventRepository.getTopVideos(limit, timeframe);
+            }
             
+            if (uniqueCounts.isReady()) {
+                uniqueCounts.fillUniqueViewers(topVideos);
+            }
+
             // Post-traitement: enrichir avec les métadonnées vidéo si nécessaire
             enrichVideoStats(topVideos);
             
@@ -51,7 +111,14 @@ public class AnalyticsService {
         try {
             logger.info("Fetching stats for video: {}", videoId);
             
-            VideoStats stats = eventRepository.getVideoStats(videoId);
+            // Un document video_stats (index unique sur videoId) au lieu d'un parcours des événements
+            VideoStats stats = videoStatsAggregator.getStats(videoId);
+            if (stats != null && uniqueCounts.isReady()) {
+                stats.setUniqueViewers((int) uniqueCounts.getUniqueViewers(videoId));
+            }
+            if (stats != null) {
+                enrichVideoStats(Collections.singletonList(stats));
+            }
             
             if (detailed && stats != null) {
                 // Ajouter des métriques supplémentaires
@@ -75,12 +142,45 @@ public class AnalyticsService {
             int limit, 
             String category) {
         
+        // Résultat en cache tant qu'aucun nouvel événement de l'utilisateur n'a été persisté
+        return recommendationCache.get(userId, limit, category,
+            () -> loadPersonalizedRecommendations(userId, limit, category));
+    }
+
+    private List<VideoRecommendation> loadPersonalizedRecommendations(
+            String userId, 
+            int limit, 
+            String category) {
+        
         try {
-            logger.info("Generating recommendations for user: {}, category: {}", userId, category);
-            
-            // Obtenir les recommandations du repository
-            List<VideoRecommendation> recommendations = 
-                eventRepository.getRecommendationsForUser(userId, limit, category);
+            logger.debug("Generating recommendations for user: {}, category: {}", userId, category);
+            
+            // Recommandations matérialisées par RecommendationBatchJob; calcul à la volée pour les
+            // utilisateurs froids (pas encore traités par le lot), puis repli sur MongoDB pour les
+            // utilisateurs connus dont les vidéos n'ont pas de voisins.
+            // Avec une catégorie, davantage de candidats sont calculés puis filtrés via le catalogue
+            int candidates = category == null ? limit : limit * CATEGORY_CANDIDATES_FACTOR;
+            // Les lignes matérialisées datent du dernier lot: retirer les vidéos regardées depuis
+            Set<String> watched = coViewIndex.isReady()
+                ? coViewIndex.recentVideoIds(userId)
+                : Collections.emptySet();
+            List<VideoRecommendation> recommendations = category == null
+                ? userRecommendationRepository.findByUserId(userId, limit + watched.size())
+                : userRecommendationRepository.findByUserIdAndCategory(userId, category, limit + watched.size());
+            recommendations.removeIf(rec -> watched.contains(rec.getVideoId()));
+            if (recommendations.isEmpty()) {
+                recommendations = filterByCategory(computeRecommendations(userId, candidates), category);
+            }
+            // Utilisateur inconnu de l'index prêt: pas d'historique à exploiter dans MongoDB
+            boolean unknownUser = coViewIndex.isReady() && watched.isEmpty();
+            if (recommendations.isEmpty() && !unknownUser) {
+                Set<String> candidateVideoIds = category != null && videoCatalog.isReady()
+                    ? videoCatalog.videoIdsInCategory(category)
+                    : null;
+                recommendations = eventRepository.getRecommendationsForUser(userId, candidates, candidateVideoIds);
+                joinCatalog(recommendations);
+                recommendations = filterByCategory(recommendations, category);
+            }
             
             // Appliquer des filtres et post-traitement
             recommendations = filterAndRankRecommendations(recommendations, userId);
@@ -95,6 +195,28 @@ public class AnalyticsService {
         }
     }
 
+    /**
+     * Recommandations calculées en mémoire: voisins de co-visionnage complétés par les vidéos populaires;
+     * un utilisateur sans historique récent reçoit directement les vidéos populaires
+     *
+     * @return liste vide si l'index n'est pas prêt, ou si les vidéos récentes de l'utilisateur n'ont pas de voisins
+     */
+    public List<VideoRecommendation> computeRecommendations(String userId, int limit) {
+        if (!coViewIndex.isReady()) {
+            return Collections.emptyList();
+        }
+        Set<String> recent = coViewIndex.recentVideoIds(userId);
+        List<VideoRecommendation> recommendations = recent.isEmpty()
+            ? new ArrayList<>()
+            : coViewIndex.recommend(userId, limit);
+        if ((recent.isEmpty() || !recommendations.isEmpty()) && recommendations.size() < limit
+                && topVideosEngine.isReady()) {
+            appendPopular(recommendations, limit, recent);
+        }
+        joinCatalog(recommendations);
+        return recommendations;
+    }
+
     /**
      * Analyser les tendances (trending videos)
      */
@@ -102,7 +224,15 @@ public class AnalyticsService {
         try {
             logger.info("Analyzing trends for timeframe: {}", timeframe);
             
-            TrendingStats trends = eventRepository.getTrends(timeframe);
+            Timeframe window = Timeframe.parse(timeframe);
+            TrendingStats trends;
+            if (window != Timeframe.ALL_TIME && trendingEngine.isReady()) {
+                // Fenêtre courante comparée à la précédente, à partir des tranches en mémoire
+                trends = trendingEngine.analyze(window);
+                trends.setTimeframe(timeframe);
+            } else {
+                trends = eventRepository.getTrends(timeframe);
+            }
             
             // Calculer des métriques supplémentaires
             if (trends != null) {
@@ -122,6 +252,13 @@ public class AnalyticsService {
      */
     public RealTimeStats getRealTimeStatistics() {
         try {
+            // Moteurs en mémoire prêts: aucune requête MongoDB par appel ni par tick SSE
+            if (kpiEngine.isReady() && uniqueCounts.isReady() && heavyHitters.isReady()
+                    && rollingAggregates.isReady()) {
+                return inMemoryRealTimeStats();
+            }
+
+            // Démarrage à froid: $facet MongoDB, complété par les moteurs déjà reconstruits
             RealTimeStats stats = eventRepository.getRealTimeStats();
             
             // Ajouter des métriques calculées
@@ -143,14 +280,13 @@ public class AnalyticsService {
      */
     public Map<String, CategoryMetrics> getCategoryEngagement() {
         try {
-            logger.info("Calculating category engagement metrics");
-            
-            Map<String, CategoryMetrics> categoryMetrics = new HashMap<>();
-            
-            // Cette logique pourrait être étendue avec des agrégations MongoDB
-            // Pour l'instant, retourner une structure de base
+            logger.debug("Calculating category engagement metrics");
             
-            return categoryMetrics;
+            // Group-by par catégorie tenu à jour à l'ingestion; vide tant que la reconstruction n'est pas terminée
+            if (!categoryEngagement.isReady()) {
+                return Collections.emptyMap();
+            }
+            return categoryEngagement.getMetrics();
             
         } catch (Exception e) {
             logger.error("Error calculating category engagement", e);
@@ -163,13 +299,25 @@ public class AnalyticsService {
      */
     public UserBehaviorAnalysis analyzeUserBehavior(String userId) {
         try {
-            logger.info("Analyzing behavior for user: {}", userId);
+            logger.debug("Analyzing behavior for user: {}", userId);
             
             UserBehaviorAnalysis analysis = new UserBehaviorAnalysis();
             analysis.setUserId(userId);
             
-            // Obtenir les statistiques utilisateur
-            // Cette méthode pourrait être étendue au repository
+            // Profil tenu à jour à l'ingestion: une seule lecture par userId
+            UserProfile profile = userProfiles.getProfile(userId);
+            if (profile == null) {
+                return analysis;
+            }
+            analysis.setPreferredCategories(userProfiles.topCategories(profile));
+            analysis.setPreferredDevice(profile.getFavoriteDevice());
+            analysis.setAverageSessionDuration(profile.getSessions() > 0
+                ? profile.getTotalWatchTime() / (double) profile.getSessions() : 0.0);
+            analysis.setPeakViewingTime(peakHour(profile.getHourlyViews()));
+            analysis.setTotalWatchTime(profile.getTotalWatchTime());
+            analysis.setVideosWatched(profile.getVideosWatched());
+            analysis.setSessions(profile.getSessions());
+            analysis.setLastActivity(profile.getLastActivity());
             
             return analysis;
             
@@ -179,21 +327,27 @@ public class AnalyticsService {
         }
     }
 
+    private static String peakHour(long[] viewsPerHour) {
+        int peak = 0;
+        for (int hour = 1; hour < viewsPerHour.length; hour++) {
+            if (viewsPerHour[hour] > viewsPerHour[peak]) {
+                peak = hour;
+            }
+        }
+        return viewsPerHour[peak] > 0 ? String.format("%02d:00", peak) : null;
+    }
+
     /**
      * Détecter les anomalies dans les patterns de visionnage
      */
     public List<AnomalyDetection> detectAnomalies(String timeframe) {
         try {
-            logger.info("Detecting anomalies for timeframe: {}", timeframe);
+            logger.debug("Detecting anomalies for timeframe: {}", timeframe);
             
-            List<AnomalyDetection> anomalies = new ArrayList<>();
-            
-            // Algorithme de détection d'anomalies
-            // 1. Calculer les moyennes/écarts-types
-            // 2. Identifier les valeurs aberrantes
-            // 3. Classer par sévérité
-            
-            return anomalies;
+            // Anomalies signalées en continu par AnomalyDetector (EWMA des vues par minute), par sévérité décroissante
+            Timeframe window = Timeframe.parse(timeframe);
+            long since = window == Timeframe.ALL_TIME ? 0 : System.currentTimeMillis() - window.getMillis();
+            return anomalyDetector.getAnomalies(since);
             
         } catch (Exception e) {
             logger.error("Error detecting anomalies", e);
@@ -208,9 +362,14 @@ public class AnalyticsService {
         try {
             logger.info("Calculating KPIs for timeframe: {}", timeframe);
             
+            // Tranches et bitmaps d'utilisateurs tenus à jour à l'ingestion: aucun parcours des événements
+            if (kpiEngine.isReady()) {
+                return kpiEngine.compute(Timeframe.parse(timeframe));
+            }
+            
             PerformanceKPIs kpis = new PerformanceKPIs();
             
-            // Obtenir les stats en temps réel comme base
+            // Reconstruction en cours: stats en temps réel (total cumulé, fenêtres de 24h) comme base
             RealTimeStats stats = getRealTimeStatistics();
             
             if (stats != null) {
@@ -233,8 +392,43 @@ public class AnalyticsService {
      * Enrichir les statistiques vidéo avec métadonnées
      */
     private void enrichVideoStats(List<VideoStats> statsList) {
-        // Potentiellement charger les métadonnées vidéo depuis le VideoRepository
-        // et les ajouter aux stats
+        // Jointure en mémoire avec le catalogue vidéo, sans requête MongoDB
+        for (VideoStats stats : statsList) {
+            Video video = videoCatalog.get(stats.getVideoId());
+            if (video != null) {
+                stats.setTitle(video.getTitle());
+                stats.setCategory(video.getCategory());
+                stats.setDuration(video.getDuration());
+            }
+        }
+    }
+
+    /**
+     * Compléter titre, catégorie, durée et likes depuis le catalogue vidéo
+     */
+    private void joinCatalog(List<VideoRecommendation> recommendations) {
+        for (VideoRecommendation rec : recommendations) {
+            Video video = videoCatalog.get(rec.getVideoId());
+            if (video != null) {
+                rec.setVideoTitle(video.getTitle());
+                rec.setCategory(video.getCategory());
+                rec.setDuration(video.getDuration());
+                rec.setLikes(video.getLikes());
+            }
+        }
+    }
+
+    /**
+     * Garder les recommandations de la catégorie (toutes si aucune catégorie n'est demandée
+     * ou si le catalogue n'est pas encore chargé)
+     */
+    private List<VideoRecommendation> filterByCategory(List<VideoRecommendation> recommendations, String category) {
+        if (category == null || !videoCatalog.isReady()) {
+            return recommendations;
+        }
+        return recommendations.stream()
+            .filter(rec -> category.equalsIgnoreCase(rec.getCategory()))
+            .collect(Collectors.toList());
     }
 
     /**
@@ -247,6 +441,28 @@ public class AnalyticsService {
         // - Timeline de visionnage
     }
 
+    /**
+     * Compléter avec les vidéos les plus vues que l'utilisateur n'a pas regardées récemment,
+     * classées après les recommandations de co-visionnage
+     */
+    private void appendPopular(List<VideoRecommendation> recommendations, int limit, Set<String> watched) {
+        Set<String> present = new HashSet<>(watched);
+        recommendations.forEach(rec -> present.add(rec.getVideoId()));
+        List<VideoStats> popular = topVideosEngine.getTopVideos(limit * 2 + watched.size());
+        for (int i = 0; i < popular.size() && recommendations.size() < limit; i++) {
+            VideoStats vs = popular.get(i);
+            if (!present.add(vs.getVideoId())) continue;
+            VideoRecommendation rec = new VideoRecommendation();
+            rec.setVideoId(vs.getVideoId());
+            rec.setVideoTitle("Video " + vs.getVideoId());
+            rec.setViews(vs.getTotalViews());
+            rec.setRelevanceScore(0.5 * (1 - i / (double) popular.size()) * 0.99);
+            rec.setConfidenceScore(rec.getRelevanceScore());
+            rec.setReason("Popular on the platform");
+            recommendations.add(rec);
+        }
+    }
+
     /**
      * Filtrer et classer les recommandations
      */
@@ -270,11 +486,52 @@ public class AnalyticsService {
         // Calculer velocity, momentum, etc.
     }
 
+    /**
+     * Stats temps réel depuis les compteurs KPI (total cumulé, minute écoulée), les agrégats glissants
+     * (durée moyenne sur 24h), les HyperLogLog (utilisateurs distincts) et les heavy hitters de la
+     * dernière heure
+     */
+    private RealTimeStats inMemoryRealTimeStats() {
+        long[] day = rollingAggregates.getTotals(Timeframe.LAST_DAY);
+        RealTimeStats stats = new RealTimeStats();
+        stats.setTotalEventsProcessed(kpiEngine.allTimeTotals()[0]);
+        stats.setAverageWatchTime(day[0] > 0 ? (double) day[1] / day[0] : 0.0);
+        stats.setEventsPerSecond(kpiEngine.recentViews(60_000L) / 60);
+        stats.setActiveUsers((int) uniqueCounts.getActiveUsers(Timeframe.LAST_DAY));
+        stats.setCurrentViewers(uniqueCounts.getCurrentViewers());
+
+        List<String> topVideoIds = heavyHitters.getTopVideoIds(REALTIME_TOP_VIDEOS);
+        if (topVideoIds.isEmpty()) {
+            // Aucune vue dans l'heure: classement des 24 heures, comme la requête MongoDB
+            topVideoIds = rollingAggregates.getTopVideos(REALTIME_TOP_VIDEOS, Timeframe.LAST_DAY).stream()
+                    .map(VideoStats::getVideoId)
+                    .collect(Collectors.toList());
+        }
+        stats.setTopVideoIds(topVideoIds);
+        if (!topVideoIds.isEmpty()) {
+            stats.setMostWatchedVideoId(topVideoIds.get(0));
+        }
+        stats.setTimestamp(String.valueOf(System.currentTimeMillis()));
+        return stats;
+    }
+
     /**
      * Améliorer les stats temps réel avec des calculs
      */
     private void enhanceRealTimeStats(RealTimeStats stats) {
-        // Ajouter taux de croissance, comparaisons, etc.
+        // Utilisateurs distincts estimés par HyperLogLog: actifs sur 24h, spectateurs des 5 dernières minutes
+        if (uniqueCounts.isReady()) {
+            stats.setActiveUsers((int) uniqueCounts.getActiveUsers(Timeframe.LAST_DAY));
+            stats.setCurrentViewers(uniqueCounts.getCurrentViewers());
+        }
+        // Vidéos les plus regardées de la dernière heure (Count-Min + Space-Saving)
+        if (heavyHitters.isReady()) {
+            List<String> topVideoIds = heavyHitters.getTopVideoIds(REALTIME_TOP_VIDEOS);
+            if (!topVideoIds.isEmpty()) {
+                stats.setTopVideoIds(topVideoIds);
+                stats.setMostWatchedVideoId(topVideoIds.get(0));
+            }
+        }
     }
 
     // ==================== Classes internes pour les métriques ====================
@@ -307,6 +564,10 @@ public class AnalyticsService {
         private double averageSessionDuration;
         private String peakViewingTime;
         private String preferredDevice;
+        private int totalWatchTime;
+        private int videosWatched;
+        private int sessions;
+        private String lastActivity;
 
         // Getters and setters
         public String getUserId() { return userId; }
@@ -331,24 +592,48 @@ public class AnalyticsService {
         public void setPreferredDevice(String preferredDevice) { 
             this.preferredDevice = preferredDevice; 
         }
+        
+        public int getTotalWatchTime() { return totalWatchTime; }
+        public void setTotalWatchTime(int totalWatchTime) { this.totalWatchTime = totalWatchTime; }
+        
+        public int getVideosWatched() { return videosWatched; }
+        public void setVideosWatched(int videosWatched) { this.videosWatched = videosWatched; }
+        
+        public int getSessions() { return sessions; }
+        public void setSessions(int sessions) { this.sessions = sessions; }
+        
+        public String getLastActivity() { return lastActivity; }
+        public void setLastActivity(String lastActivity) { this.lastActivity = lastActivity; }
     }
 
     public static class AnomalyDetection {
         private String type;
+        private String videoId;
         private String description;
         private double severity;
+        private long observedRate;
+        private double expectedRate;
         private String timestamp;
 
         // Getters and setters
         public String getType() { return type; }
         public void setType(String type) { this.type = type; }
         
+        public String getVideoId() { return videoId; }
+        public void setVideoId(String videoId) { this.videoId = videoId; }
+        
         public String getDescription() { return description; }
         public void setDescription(String description) { this.description = description; }
         
         public double getSeverity() { return severity; }
         public void setSeverity(double severity) { this.severity = severity; }
         
+        public long getObservedRate() { return observedRate; }
+        public void setObservedRate(long observedRate) { this.observedRate = observedRate; }
+        
+        public double getExpectedRate() { return expectedRate; }
+        public void setExpectedRate(double expectedRate) { this.expectedRate = expectedRate; }
+        
         public String getTimestamp() { return timestamp; }
         public void setTimestamp(String timestamp) { this.timestamp = timestamp; }
     }
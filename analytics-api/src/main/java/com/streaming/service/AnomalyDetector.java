@@ -0,0 +1,237 @@
+package com.streaming.service;
+
+import com.streaming.model.ViewEvent;
+import com.streaming.service.AnalyticsService.AnomalyDetection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Détection en ligne des pics et des chutes du nombre de vues par minute, globalement et par vidéo
+ *
+ * Chaque clé garde une moyenne et une variance à décroissance exponentielle (EWMA, mise à jour
+ * incrémentale à la Welford) de ses vues par minute: mémoire O(1) par clé, aucun historique relu.
+ * À la clôture d'une minute, un écart de plus de {@link #Z_THRESHOLD} écarts-types à la moyenne
+ * est signalé s'il double (ou divise par deux) le rythme attendu, après {@link #WARMUP_MINUTES}
+ * minutes d'apprentissage et au-delà de {@link #MIN_RATE} vues par minute: des milliers de vidéos
+ * sont testées chaque minute, un simple seuil d'écart-type produirait des faux positifs.
+ * L'écart-type est au moins celui d'un processus de Poisson de même moyenne, pour qu'un flux très
+ * régulier ne signale pas chaque variation d'une vue. Les minutes sont celles de l'arrivée des événements.
+ */
+@ApplicationScoped
+public class AnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnomalyDetector.class);
+
+    public static final String SPIKE = "VIEW_SPIKE";
+    public static final String DROP = "VIEW_DROP";
+
+    private static final long MINUTE = 60_000L;
+    private static final double ALPHA = 0.1;
+    private static final double Z_THRESHOLD = 4.0;
+    /** Vues par minute (observées ou attendues) en dessous desquelles rien n'est signalé */
+    private static final double MIN_RATE = 20.0;
+    /** Rapport minimal observé / attendu d'un pic (son inverse pour une chute) */
+    private static final double MIN_RATIO = 2.0;
+    private static final int WARMUP_MINUTES = 10;
+    /** Minutes vides rejouées au plus après une interruption */
+    private static final int MAX_CATCH_UP_MINUTES = 60;
+    /** Une vidéo dont la moyenne descend sous ce seuil n'est plus suivie */
+    private static final double EVICTION_MEAN = 0.05;
+    private static final int HISTORY = 500;
+    private static final long SWEEP_MILLIS = 5_000L;
+
+    private final RateStats global = new RateStats(null);
+    private final Map<String, RateStats> perVideo = new ConcurrentHashMap<>();
+
+    /** Anomalies récentes, de la plus ancienne à la plus récente, avec leur numéro de séquence */
+    private final Deque<Flagged> history = new ArrayDeque<>();
+    private long sequence;
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "anomaly-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepSafely, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        long minute = System.currentTimeMillis() / MINUTE;
+        global.add(minute, events.size());
+        for (ViewEvent event : events) {
+            if (event.getVideoId() != null) {
+                perVideo.computeIfAbsent(event.getVideoId(), RateStats::new).add(minute, 1);
+            }
+        }
+    }
+
+    /**
+     * Anomalies signalées depuis {@code sinceMillis}, par sévérité décroissante
+     */
+    public List<AnomalyDetection> getAnomalies(long sinceMillis) {
+        List<AnomalyDetection> anomalies = new ArrayList<>();
+        synchronized (history) {
+            for (Flagged flagged : history) {
+                if (flagged.minuteStart >= sinceMillis) {
+                    anomalies.add(flagged.anomaly);
+                }
+            }
+        }
+        anomalies.sort((a, b) -> Double.compare(b.getSeverity(), a.getSeverity()));
+        return anomalies;
+    }
+
+    /**
+     * Anomalies de numéro de séquence dans ]after, upTo], dans l'ordre de détection
+     */
+    public List<AnomalyDetection> getAnomaliesBetween(long after, long upTo) {
+        List<AnomalyDetection> anomalies = new ArrayList<>();
+        synchronized (history) {
+            for (Flagged flagged : history) {
+                if (flagged.sequence > after && flagged.sequence <= upTo) {
+                    anomalies.add(flagged.anomaly);
+                }
+            }
+        }
+        return anomalies;
+    }
+
+    public long getLastSequence() {
+        synchronized (history) {
+            return sequence;
+        }
+    }
+
+    /**
+     * Clôturer les minutes écoulées des clés sans événement récent (nécessaire pour voir les chutes)
+     */
+    private void sweepSafely() {
+        try {
+            long minute = System.currentTimeMillis() / MINUTE;
+            global.add(minute, 0);
+            perVideo.values().removeIf(stats -> stats.closeAndIsIdle(minute));
+        } catch (Exception e) {
+            logger.error("Anomaly sweep failed", e);
+        }
+    }
+
+    private void flag(String type, String videoId, long minuteStart, long observed, double expected, double z) {
+        AnomalyDetection anomaly = new AnomalyDetection();
+        anomaly.setType(type);
+        anomaly.setVideoId(videoId);
+        anomaly.setObservedRate(observed);
+        anomaly.setExpectedRate(expected);
+        anomaly.setSeverity(Math.abs(z));
+        anomaly.setTimestamp(String.valueOf(minuteStart));
+        anomaly.setDescription(String.format("%s: %d views/min, expected %.1f (%.1f standard deviations)",
+                videoId != null ? "Video " + videoId : "All videos", observed, expected, z));
+        synchronized (history) {
+            history.addLast(new Flagged(++sequence, minuteStart, anomaly));
+            if (history.size() > HISTORY) {
+                history.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Vues de la minute en cours et statistiques EWMA des minutes clôturées d'une clé
+     */
+    private final class RateStats {
+        final String videoId;
+        long minute = Long.MIN_VALUE;
+        long count;
+        long closedMinutes;
+        double mean;
+        double variance;
+
+        RateStats(String videoId) {
+            this.videoId = videoId;
+        }
+
+        synchronized void add(long eventMinute, long views) {
+            close(eventMinute);
+            count += views;
+        }
+
+        synchronized boolean closeAndIsIdle(long currentMinute) {
+            close(currentMinute);
+            return count == 0 && closedMinutes > 0 && mean < EVICTION_MEAN;
+        }
+
+        private void close(long currentMinute) {
+            if (minute == Long.MIN_VALUE) {
+                minute = currentMinute;
+                return;
+            }
+            // Minutes vides éventuelles après la minute en cours, bornées après une longue interruption
+            long elapsed = Math.min(currentMinute - minute, MAX_CATCH_UP_MINUTES);
+            for (long i = 0; i < elapsed; i++) {
+                update(currentMinute - elapsed + i, count);
+                count = 0;
+            }
+            if (currentMinute > minute) {
+                minute = currentMinute;
+            }
+        }
+
+        private void update(long closedMinute, long observed) {
+            if (closedMinutes >= WARMUP_MINUTES && Math.max(observed, mean) >= MIN_RATE) {
+                double deviation = Math.max(Math.sqrt(variance), Math.max(Math.sqrt(mean), 1.0));
+                double z = (observed - mean) / deviation;
+                if (z >= Z_THRESHOLD && observed >= MIN_RATIO * mean) {
+                    flag(SPIKE, videoId, closedMinute * MINUTE, observed, mean, z);
+                } else if (z <= -Z_THRESHOLD && observed * MIN_RATIO <= mean) {
+                    flag(DROP, videoId, closedMinute * MINUTE, observed, mean, z);
+                }
+            }
+            if (closedMinutes == 0) {
+                mean = observed;
+            } else {
+                double diff = observed - mean;
+                double increment = ALPHA * diff;
+                mean += increment;
+                variance = (1 - ALPHA) * (variance + diff * increment);
+            }
+            closedMinutes++;
+        }
+    }
+
+    private static final class Flagged {
+        final long sequence;
+        final long minuteStart;
+        final AnomalyDetection anomaly;
+
+        Flagged(long sequence, long minuteStart, AnomalyDetection anomaly) {
+            this.sequence = sequence;
+            this.minuteStart = minuteStart;
+            this.anomaly = anomaly;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.streaming.service;
+
+import com.streaming.model.Video;
+import com.streaming.model.ViewEvent;
+import com.streaming.service.AnalyticsService.CategoryMetrics;
+import com.streaming.service.aggregation.HyperLogLog;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Engagement par catégorie (vues, taux de complétion moyen, spectateurs distincts), tenu à jour à l'ingestion
+ *
+ * Les événements sont répartis en partitions par hachage du videoId; chaque partition regroupe ses
+ * vues par catégorie (résolue par {@link VideoCatalog}) sous son propre verrou. Une requête fusionne
+ * les partitions en parallèle, et le résultat est réutilisé tant qu'aucun événement n'a été ajouté.
+ * Le taux de complétion d'une vue est la durée regardée rapportée à la durée de la vidéo (plafonné
+ * à 1), sur les vues dont la vidéo est au catalogue.
+ * Au démarrage, les accumulateurs sont initialisés depuis des regroupements côté serveur (vues par
+ * vidéo et durée regardée, paires vidéo-utilisateur) sans relire l'historique des événements.
+ */
+@ApplicationScoped
+public class CategoryEngagement {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryEngagement.class);
+
+    private static final int VIEWERS_PRECISION = 12;
+
+    @Inject
+    private VideoCatalog videoCatalog;
+
+    private final Partition[] partitions = newPartitions(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(-1, Collections.emptyMap());
+    private volatile boolean ready = false;
+
+    /**
+     * Prendre en compte un lot d'événements persistés (un verrou par partition touchée)
+     */
+    public void recordAll(List<ViewEvent> events) {
+        List<List<ViewEvent>> byPartition = partition(events);
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i].addAll(byPartition.get(i), videoCatalog);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Initialiser les vues depuis l'origine avec une ligne (vidéo, durée regardée, nombre d'événements)
+     * regroupée côté serveur
+     */
+    public void seedViews(String videoId, int duration, long count) {
+        partitionOf(videoId).addViews(videoId, duration, count, videoCatalog);
+    }
+
+    /**
+     * Initialiser les spectateurs distincts depuis l'origine avec une paire (vidéo, utilisateur) regroupée
+     * côté serveur
+     */
+    public void seedViewer(String videoId, String userId) {
+        if (videoId != null) {
+            partitionOf(videoId).addViewer(videoId, HyperLogLog.hash(userId), videoCatalog);
+        }
+    }
+
+    /**
+     * Fin de l'initialisation: les métriques peuvent servir les requêtes
+     */
+    public void finishSeed() {
+        version.incrementAndGet();
+        ready = true;
+        logger.info("Category engagement ready: {} partitions", partitions.length);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Métriques par catégorie, triées par nom
+     */
+    public Map<String, CategoryMetrics> getMetrics() {
+        long current = version.get();
+        Snapshot cached = snapshot;
+        if (cached.version == current) {
+            return cached.metrics;
+        }
+
+        // Fusion parallèle des partitions: chaque partition copie ses accumulateurs, puis réduction par paire
+        Map<String, Accumulator> merged = Arrays.stream(partitions).parallel()
+                .map(Partition::copy)
+                .reduce(new HashMap<>(), CategoryEngagement::merge);
+
+        Map<String, CategoryMetrics> metrics = new TreeMap<>();
+        merged.forEach((category, accumulator) -> metrics.put(category, accumulator.toMetrics(category)));
+        snapshot = new Snapshot(current, Collections.unmodifiableMap(metrics));
+        return snapshot.metrics;
+    }
+
+    private Partition partitionOf(String videoId) {
+        return partitions[(int) ((HyperLogLog.hash(videoId) >>> 1) % partitions.length)];
+    }
+
+    private List<List<ViewEvent>> partition(List<ViewEvent> events) {
+        List<List<ViewEvent>> byPartition = new ArrayList<>(partitions.length);
+        for (int i = 0; i < partitions.length; i++) {
+            byPartition.add(new ArrayList<>());
+        }
+        for (ViewEvent event : events) {
+            if (event.getVideoId() != null) {
+                byPartition.get((int) ((HyperLogLog.hash(event.getVideoId()) >>> 1) % partitions.length)).add(event);
+            }
+        }
+        return byPartition;
+    }
+
+    private static Map<String, Accumulator> merge(Map<String, Accumulator> left, Map<String, Accumulator> right) {
+        Map<String, Accumulator> result = new HashMap<>(left);
+        right.forEach((category, accumulator) -> result.merge(category, accumulator, Accumulator::plus));
+        return result;
+    }
+
+    private static Partition[] newPartitions(int count) {
+        Partition[] partitions = new Partition[Math.max(1, count)];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition();
+        }
+        return partitions;
+    }
+
+    /**
+     * Accumulateurs par catégorie des vidéos d'une partition
+     */
+    private static final class Partition {
+        private final Map<String, Accumulator> categories = new HashMap<>();
+
+        synchronized void addAll(List<ViewEvent> events, VideoCatalog catalog) {
+            for (ViewEvent event : events) {
+                Video video = catalog.get(event.getVideoId());
+                Accumulator accumulator = accumulator(video);
+                accumulator.addViews(1, event.getDuration(), video);
+                if (event.getUserId() != null) {
+                    accumulator.viewers.add(HyperLogLog.hash(event.getUserId()));
+                }
+            }
+        }
+
+        synchronized void addViews(String videoId, int duration, long count, VideoCatalog catalog) {
+            Video video = catalog.get(videoId);
+            accumulator(video).addViews(count, duration, video);
+        }
+
+        synchronized void addViewer(String videoId, long hash, VideoCatalog catalog) {
+            accumulator(catalog.get(videoId)).viewers.add(hash);
+        }
+
+        private Accumulator accumulator(Video video) {
+            String category = video != null && video.getCategory() != null
+                    ? video.getCategory() : RollingAggregates.UNKNOWN_CATEGORY;
+            return categories.computeIfAbsent(category, c -> new Accumulator());
+        }
+
+        synchronized Map<String, Accumulator> copy() {
+            Map<String, Accumulator> copy = new HashMap<>(categories.size() * 2);
+            categories.forEach((category, accumulator) -> copy.put(category, accumulator.copy()));
+            return copy;
+        }
+    }
+
+    private static final class Accumulator {
+        long views;
+        double completionSum;
+        long completionViews;
+        final HyperLogLog viewers = new HyperLogLog(VIEWERS_PRECISION);
+
+        void addViews(long count, int duration, Video video) {
+            views += count;
+            if (video != null && video.getDuration() > 0) {
+                completionSum += count * Math.min(1.0, Math.max(0, duration) / (double) video.getDuration());
+                completionViews += count;
+            }
+        }
+
+        Accumulator copy() {
+            Accumulator copy = new Accumulator();
+            copy.views = views;
+            copy.completionSum = completionSum;
+            copy.completionViews = completionViews;
+            copy.viewers.merge(viewers);
+            return copy;
+        }
+
+        /**
+         * Les deux opérandes sont des copies propres à la requête: la fusion peut modifier {@code this}
+         */
+        Accumulator plus(Accumulator other) {
+            views += other.views;
+            completionSum += other.completionSum;
+            completionViews += other.completionViews;
+            viewers.merge(other.viewers);
+            return this;
+        }
+
+        CategoryMetrics toMetrics(String category) {
+            CategoryMetrics metrics = new CategoryMetrics();
+            metrics.setCategory(category);
+            metrics.setTotalViews(views);
+            metrics.setAverageEngagement(completionViews > 0 ? completionSum / completionViews : 0.0);
+            metrics.setUniqueViewers((int) viewers.estimate());
+            return metrics;
+        }
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final Map<String, CategoryMetrics> metrics;
+
+        Snapshot(long version, Map<String, CategoryMetrics> metrics) {
+            this.version = version;
+            this.metrics = metrics;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.streaming.service;
+
+import com.streaming.model.VideoRecommendation;
+import com.streaming.model.ViewEvent;
+import com.streaming.service.aggregation.EventTimestamps;
+import com.streaming.service.aggregation.Interner;
+import com.streaming.service.aggregation.TopNeighbours;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index item-à-item de co-visionnage pour les recommandations
+ *
+ * Deux vidéos regardées par le même utilisateur à moins de {@link #SESSION_GAP_MILLIS} d'intervalle
+ * sont co-visionnées. Chaque vidéo (ordinal interné) garde ses {@link #NEIGHBOURS_PER_VIDEO} voisins
+ * les plus fréquents; les dernières vidéos de chaque utilisateur sont gardées dans un LRU borné,
+ * réparti en {@link #SESSION_STRIPES} segments verrouillés séparément pour que l'ingestion et les
+ * recommandations ne se disputent pas un verrou global.
+ * Recommander revient à fusionner les listes de voisins des vidéos récentes de l'utilisateur, sans
+ * lecture de MongoDB: un utilisateur absent du LRU n'a pas d'historique récent.
+ */
+@ApplicationScoped
+public class CoViewIndex implements ReplayTarget {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoViewIndex.class);
+
+    private static final long SESSION_GAP_MILLIS = 6 * 60 * 60_000L;
+    private static final long REBUILD_WINDOW_MILLIS = 7 * 24 * 60 * 60_000L;
+    private static final int RECENT_VIDEOS_PER_USER = 20;
+    private static final int NEIGHBOURS_PER_VIDEO = 64;
+    private static final int NEIGHBOURS_PER_QUERY = 30;
+    private static final int MAX_TRACKED_USERS = 200_000;
+    private static final int SESSION_STRIPES = 64;
+
+    private final Interner videoIndex = new Interner();
+    private volatile VideoNode[] nodes = new VideoNode[1024];
+
+    private final SessionStripe[] sessions = new SessionStripe[SESSION_STRIPES];
+
+    private volatile boolean ready = false;
+
+    public CoViewIndex() {
+        for (int i = 0; i < SESSION_STRIPES; i++) {
+            sessions[i] = new SessionStripe(MAX_TRACKED_USERS / SESSION_STRIPES);
+        }
+    }
+
+    /**
+     * Prendre en compte un événement persisté
+     */
+    public void record(ViewEvent event) {
+        if (event.getUserId() == null || event.getVideoId() == null) {
+            return;
+        }
+        long timestamp = EventTimestamps.toEpochMillis(event, System.currentTimeMillis());
+        int video = videoIndex.intern(event.getVideoId());
+        VideoNode node = node(video);
+        node.views.incrementAndGet();
+
+        int[] coViewed;
+        SessionStripe stripe = stripeFor(event.getUserId());
+        synchronized (stripe) {
+            coViewed = stripe.computeIfAbsent(event.getUserId(), id -> new UserSession()).add(video, timestamp);
+        }
+        for (int other : coViewed) {
+            node.neighbours.add(other);
+            node(other).neighbours.add(video);
+        }
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        for (ViewEvent event : events) {
+            record(event);
+        }
+    }
+
+    /**
+     * Les 7 derniers jours, rejoués dans l'ordre chronologique
+     */
+    @Override
+    public long getReplayWindowMillis() {
+        return REBUILD_WINDOW_MILLIS;
+    }
+
+    @Override
+    public void replay(ViewEvent event) {
+        record(event);
+    }
+
+    @Override
+    public void finishReplay() {
+        ready = true;
+        logger.info("Co-view index ready: {} videos, {} users", videoIndex.size(), trackedUsers());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int trackedUsers() {
+        int users = 0;
+        for (SessionStripe stripe : sessions) {
+            synchronized (stripe) {
+                users += stripe.size();
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Utilisateurs actifs sur la fenêtre de l'index (instantané du LRU, segment par segment)
+     */
+    public List<String> activeUserIds() {
+        List<String> userIds = new ArrayList<>();
+        for (SessionStripe stripe : sessions) {
+            synchronized (stripe) {
+                userIds.addAll(stripe.keySet());
+            }
+        }
+        return userIds;
+    }
+
+    /**
+     * Recommandations par fusion des voisins des vidéos récentes de l'utilisateur
+     *
+     * @return liste vide si l'utilisateur n'a pas d'historique ou si ses vidéos n'ont pas de voisins
+     */
+    public List<VideoRecommendation> recommend(String userId, int limit) {
+        int[] recent = recentVideos(userId);
+        if (recent.length == 0) {
+            return new ArrayList<>();
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        for (int video : recent) {
+            seen.add(video);
+        }
+
+        // Score = Σ poids de récence × co-visionnages / √(vues(a) × vues(b)) (similarité cosinus)
+        Map<Integer, double[]> candidates = new HashMap<>();
+        for (int i = 0; i < recent.length; i++) {
+            VideoNode source = nodeOrNull(recent[i]);
+            if (source == null) continue;
+            double recency = 1.0 / (1 + i);
+            double sourceViews = Math.max(1, source.views.get());
+            source.neighbours.forEachTop(NEIGHBOURS_PER_QUERY, (neighbour, count) -> {
+                if (seen.contains(neighbour)) return;
+                VideoNode target = nodeOrNull(neighbour);
+                double targetViews = target != null ? Math.max(1, target.views.get()) : 1;
+                double[] score = candidates.computeIfAbsent(neighbour, k -> new double[2]);
+                score[0] += recency * count / Math.sqrt(sourceViews * targetViews);
+                score[1] = Math.max(score[1], targetViews);
+            });
+        }
+
+        PriorityQueue<Map.Entry<Integer, double[]>> heap =
+                new PriorityQueue<>((a, b) -> Double.compare(a.getValue()[0], b.getValue()[0]));
+        for (Map.Entry<Integer, double[]> candidate : candidates.entrySet()) {
+            heap.add(candidate);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<VideoRecommendation> recommendations = new ArrayList<>(heap.size());
+        double best = 0;
+        while (!heap.isEmpty()) {
+            Map.Entry<Integer, double[]> entry = heap.poll();
+            best = Math.max(best, entry.getValue()[0]);
+            VideoRecommendation rec = new VideoRecommendation();
+            rec.setVideoId(videoIndex.name(entry.getKey()));
+            rec.setVideoTitle("Video " + rec.getVideoId());
+            rec.setRelevanceScore(entry.getValue()[0]);
+            rec.setViews((long) entry.getValue()[1]);
+            rec.setReason("Watched by viewers of your recent videos");
+            recommendations.add(0, rec);
+        }
+        // Scores ramenés dans ]0,5 ; 1] relativement au meilleur candidat
+        for (VideoRecommendation rec : recommendations) {
+            rec.setRelevanceScore(best > 0 ? 0.5 + 0.5 * rec.getRelevanceScore() / best : 0.5);
+            rec.setConfidenceScore(rec.getRelevanceScore());
+        }
+        return recommendations;
+    }
+
+    /**
+     * Identifiants des vidéos récentes de l'utilisateur, à exclure des recommandations
+     *
+     * @return ensemble vide si l'utilisateur n'est pas dans le LRU
+     */
+    public Set<String> recentVideoIds(String userId) {
+        int[] recent = recentVideos(userId);
+        Set<String> videoIds = new HashSet<>(recent.length * 2);
+        for (int video : recent) {
+            videoIds.add(videoIndex.name(video));
+        }
+        return videoIds;
+    }
+
+    /**
+     * Vidéos récentes de l'utilisateur, de la plus récente à la plus ancienne; aucune hors du LRU
+     */
+    private int[] recentVideos(String userId) {
+        SessionStripe stripe = stripeFor(userId);
+        synchronized (stripe) {
+            UserSession session = stripe.get(userId);
+            return session != null ? session.newestFirst() : new int[0];
+        }
+    }
+
+    private SessionStripe stripeFor(String userId) {
+        int hash = userId.hashCode();
+        return sessions[(hash ^ (hash >>> 16)) & (SESSION_STRIPES - 1)];
+    }
+
+    private VideoNode node(int ordinal) {
+        VideoNode[] current = nodes;
+        if (ordinal < current.length && current[ordinal] != null) {
+            return current[ordinal];
+        }
+        synchronized (this) {
+            if (ordinal >= nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(ordinal + 1, nodes.length * 2));
+            }
+            VideoNode node = nodes[ordinal];
+            if (node == null) {
+                node = new VideoNode();
+                nodes[ordinal] = node;
+            }
+            return node;
+        }
+    }
+
+    private VideoNode nodeOrNull(int ordinal) {
+        VideoNode[] current = nodes;
+        return ordinal < current.length ? current[ordinal] : null;
+    }
+
+    private static final class VideoNode {
+        final TopNeighbours neighbours = new TopNeighbours(NEIGHBOURS_PER_VIDEO);
+        final AtomicLong views = new AtomicLong();
+    }
+
+    /**
+     * Segment du LRU des sessions, borné à sa part de {@link #MAX_TRACKED_USERS} et accédé sous son propre verrou
+     */
+    private static final class SessionStripe extends LinkedHashMap<String, UserSession> {
+        private final int capacity;
+
+        SessionStripe(int capacity) {
+            super(1024, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UserSession> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Dernières vidéos distinctes d'un utilisateur (anneau), accédé sous le verrou de son segment
+     */
+    private static final class UserSession {
+        final int[] videos = new int[RECENT_VIDEOS_PER_USER];
+        final long[] timestamps = new long[RECENT_VIDEOS_PER_USER];
+        int size;
+        int next;
+
+        /**
+         * Ajoute une vidéo et retourne les vidéos de la session co-visionnées avec elle
+         */
+        int[] add(int video, long timestamp) {
+            int[] coViewed = new int[size];
+            int n = 0;
+            boolean alreadySeen = false;
+            for (int i = 0; i < size; i++) {
+                if (videos[i] == video) {
+                    alreadySeen = true;
+                    timestamps[i] = Math.max(timestamps[i], timestamp);
+                } else if (Math.abs(timestamp - timestamps[i]) <= SESSION_GAP_MILLIS) {
+                    coViewed[n++] = videos[i];
+                }
+            }
+            if (alreadySeen) {
+                // Revisionnage: la paire a déjà été comptée lors du premier visionnage
+                return new int[0];
+            }
+            videos[next] = video;
+            timestamps[next] = timestamp;
+            next = (next + 1) % videos.length;
+            size = Math.min(size + 1, videos.length);
+            return Arrays.copyOf(coViewed, n);
+        }
+
+        int[] newestFirst() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(timestamps[b], timestamps[a]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = videos[order[i]];
+            }
+            return result;
+        }
+    }
+}
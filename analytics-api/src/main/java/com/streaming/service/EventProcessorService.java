@@ -1,18 +1,33 @@
 package com.streaming.service;
 
+import com.streaming.config.Settings;
+import com.streaming.model.BatchProcessingResult;
 import com.streaming.model.ViewEvent;
 import com.streaming.model.EventProcessingResult;
 import com.streaming.repository.EventRepository;
+import com.streaming.service.aggregation.EventTimestamps;
+import com.streaming.service.aggregation.HyperLogLog;
+import com.streaming.service.aggregation.RotatingBloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service de traitement des événements de streaming
@@ -25,91 +40,183 @@ public class EventProcessorService {
     
     @Inject
     private EventRepository eventRepository;
+
+    @Inject
+    private TopVideosEngine topVideosEngine;
+
+    @Inject
+    private RollingAggregates rollingAggregates;
+
+    @Inject
+    private UniqueCounts uniqueCounts;
+
+    @Inject
+    private HeavyHitters heavyHitters;
+
+    @Inject
+    private CoViewIndex coViewIndex;
+
+    @Inject
+    private RecommendationCache recommendationCache;
+
+    @Inject
+    private CategoryEngagement categoryEngagement;
+
+    @Inject
+    private AnomalyDetector anomalyDetector;
+
+    @Inject
+    private UserProfiles userProfiles;
+
+    @Inject
+    private VideoStatsAggregator videoStatsAggregator;
+
+    @Inject
+    private KpiEngine kpiEngine;
+
+    @Inject
+    private RetentionManager retentionManager;
     
+    // File d'écriture différée: capacité, taille de lot et délai max avant écriture
+    private static final int WRITE_QUEUE_CAPACITY = 65536;
+    private static final int WRITE_BATCH_SIZE = 500;
+    private static final long WRITE_MAX_DELAY_MS = 50;
+    private static final long SHUTDOWN_DRAIN_TIMEOUT_MS = 30_000;
+
+    // Ingestion batch: taille des sous-lots et nombre max d'écritures simultanées par lot
+    private static final int BATCH_CHUNK_SIZE = 1000;
+    private static final int MAX_IN_FLIGHT_WRITES = 3;
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    // Déduplication: eventIds des DEDUP_WINDOW_SIZE à 2x DEDUP_WINDOW_SIZE derniers événements persistés
+    private static final double DEDUP_FALSE_POSITIVE_RATE = 1e-6;
+
     private final ExecutorService executorService = Executors.newFixedThreadPool(10);
     private final AtomicInteger processedEvents = new AtomicInteger(0);
     private final AtomicInteger failedEvents = new AtomicInteger(0);
+    private final AtomicLong deduplicatedEvents = new AtomicLong(0);
+
+    /**
+     * Filtre des eventIds récemment persistés, alimenté après écriture seulement pour qu'un renvoi après
+     * échec soit bien écrit. Un événement signalé par le filtre n'est écarté qu'une fois son eventId
+     * retrouvé en base (recherche sur l'index eventId): un faux positif (≈ 2e-6) est écrit normalement.
+     */
+    private final RotatingBloomFilter recentEventIds = new RotatingBloomFilter(
+            Math.max(1, Settings.getInt("DEDUP_WINDOW_SIZE", 1_000_000)), DEDUP_FALSE_POSITIVE_RATE);
+
+    /**
+     * eventIds acceptés mais pas encore écrits (file différée, sous-lot en cours d'écriture): un renvoi
+     * concurrent, ou répété dans un autre sous-lot, est écarté avant d'atteindre MongoDB, ce que ni le
+     * filtre ni la recherche en base ne voient encore. Libérés une fois le lot traité, après l'ajout au
+     * filtre des événements écrits; un événement dont l'écriture échoue peut donc être renvoyé.
+     */
+    private final Set<String> pendingEventIds = ConcurrentHashMap.newKeySet();
+
+    private WriteBehindQueue writeQueue;
+
+    @PostConstruct
+    void init() {
+        writeQueue = new WriteBehindQueue(eventRepository, persisted -> {
+            updateAggregates(persisted);
+            processedEvents.addAndGet(persisted.size());
+        }, this::release, WRITE_QUEUE_CAPACITY, WRITE_BATCH_SIZE, WRITE_MAX_DELAY_MS);
+    }
 
     /**
      * Ingestion d'un événement unique
+     * L'événement est validé puis mis en file d'écriture différée; la persistance est asynchrone
      */
     public EventProcessingResult ingestEvent(ViewEvent event) {
+        if (event == null) {
+            failedEvents.incrementAndGet();
+            return new EventProcessingResult(null, false, "Processing failed: event is required");
+        }
         try {
             // Validation
             validateEvent(event);
             
             // Enrichissement des données
             enrichEvent(event);
+
+            // Renvoi d'un événement en cours d'écriture ou déjà persisté: accepté sans nouvelle écriture
+            if (!pendingEventIds.add(event.getEventId())) {
+                return duplicateResult(event);
+            }
+            boolean queued = false;
+            try {
+                if (mightBeDuplicate(event) && storedEventIds(Collections.singletonList(event)).contains(event.getEventId())) {
+                    return duplicateResult(event);
+                }
+
+                // Mise en file: persistance et agrégats mis à jour par lots
+                if (!writeQueue.offer(event)) {
+                    EventProcessingResult result = new EventProcessingResult(
+                        event.getEventId(), false, "Ingestion queue full, retry later");
+                    result.setThrottled(true);
+                    return result;
+                }
+                queued = true;
+            } finally {
+                if (!queued) {
+                    pendingEventIds.remove(event.getEventId());
+                }
+            }
             
-            // Persistance
-            eventRepository.save(event);
-            
-            processedEvents.incrementAndGet();
-            
-            logger.info("Event processed successfully: {}", event.getEventId());
+            logger.debug("Event accepted: {}", event.getEventId());
             
-            return new EventProcessingResult(event.getEventId(), true, "Event processed");
+            return new EventProcessingResult(event.getEventId(), true, "Event accepted");
             
         } catch (Exception e) {
             failedEvents.incrementAndGet();
-            logger.error("Failed to process event: {}", event.getEventId(), e);
+            logger.warn("Rejected event {}: {}", event.getEventId(), e.getMessage());
             return new EventProcessingResult(event.getEventId(), false, "Processing failed: " + e.getMessage());
         }
     }
 
     /**
-     * Ingestion batch d'événements avec traitement parallèle
+     * Ingestion batch d'événements avec traitement pipeliné
+     * La validation du sous-lot N+1 se fait pendant l'écriture du sous-lot N
      */
-    public EventProcessingResult ingestBatch(List<ViewEvent> events) {
+    public BatchProcessingResult ingestBatch(List<ViewEvent> events) {
         if (events == null || events.isEmpty()) {
-            return new EventProcessingResult(null, false, "Empty event list");
+            BatchProcessingResult result = new BatchProcessingResult();
+            result.setMessage("Empty event list");
+            result.setTimestamp(String.valueOf(System.currentTimeMillis()));
+            return result;
         }
 
+        logger.info("Starting batch processing of {} events", events.size());
+        return ingestBatch(events.iterator());
+    }
+
+    /**
+     * Ingestion batch d'un flux d'événements (corps de requête lu au fil de l'eau)
+     * Les événements sont confiés au traitement pipeliné par sous-lots de {@link #BATCH_CHUNK_SIZE}:
+     * la mémoire occupée dépend de la taille des sous-lots, pas de celle du lot
+     */
+    public BatchProcessingResult ingestBatch(Iterator<ViewEvent> events) {
+        PipelinedBatch batch = new PipelinedBatch();
         try {
-            logger.info("Starting batch processing of {} events", events.size());
-            
-            int batchSize = 1000; // Traiter par lots de 1000
-            int totalProcessed = 0;
-            int totalFailed = 0;
-
-            // Diviser en sous-lots pour optimiser la performance
-            for (int i = 0; i < events.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, events.size());
-                List<ViewEvent> subBatch = events.subList(i, end);
-                
-                // Valider et enrichir
-                for (ViewEvent event : subBatch) {
-                    try {
-                        validateEvent(event);
-                        enrichEvent(event);
-                    } catch (Exception e) {
-                        logger.warn("Event validation/enrichment failed: {}", event.getEventId(), e);
-                        totalFailed++;
-                    }
+            List<ViewEvent> chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
+            while (events.hasNext()) {
+                chunk.add(events.next());
+                if (chunk.size() == BATCH_CHUNK_SIZE) {
+                    batch.submit(chunk);
+                    chunk = new ArrayList<>(BATCH_CHUNK_SIZE);
                 }
-                
-                // Sauvegarder le batch
-                eventRepository.saveBatch(subBatch);
-                totalProcessed += subBatch.size();
-                
-                logger.info("Processed sub-batch: {}/{}", end, events.size());
             }
-
-            processedEvents.addAndGet(totalProcessed);
-            failedEvents.addAndGet(totalFailed);
-
-            logger.info("Batch processing completed: {} processed, {} failed", totalProcessed, totalFailed);
-            
-            return new EventProcessingResult(
-                null,
-                true, 
-                String.format("Batch processed: %d success, %d failed", totalProcessed, totalFailed)
-            );
-
-        } catch (Exception e) {
-            logger.error("Batch processing error", e);
-            return new EventProcessingResult(null, false, "Batch processing failed: " + e.getMessage());
+            if (!chunk.isEmpty()) {
+                batch.submit(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Batch processing interrupted", e);
         }
+        BatchProcessingResult result = batch.complete();
+        if (result.getTotalEventsProcessed() == 0) {
+            result.setMessage("Empty event list");
+        }
+        return result;
     }
 
     /**
@@ -123,17 +230,65 @@ public class EventProcessorService {
      * Traitement en streaming (pour données en temps réel)
      */
     public void processStreamingEvent(ViewEvent event) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                validateEvent(event);
-                enrichEvent(event);
-                eventRepository.save(event);
-                processedEvents.incrementAndGet();
-            } catch (Exception e) {
-                failedEvents.incrementAndGet();
-                logger.error("Streaming event processing failed: {}", event.getEventId(), e);
-            }
-        }, executorService);
+        // La file d'écriture différée est déjà non bloquante
+        ingestEvent(event);
+    }
+
+    /**
+     * Propager des événements persistés vers les agrégats en mémoire
+     */
+    private void updateAggregates(List<ViewEvent> events) {
+        for (ViewEvent event : events) {
+            recentEventIds.add(HyperLogLog.hash(event.getEventId()));
+        }
+        topVideosEngine.recordAll(events);
+        rollingAggregates.recordAll(events);
+        uniqueCounts.recordAll(events);
+        heavyHitters.recordAll(events);
+        coViewIndex.recordAll(events);
+        categoryEngagement.recordAll(events);
+        anomalyDetector.recordAll(events);
+        userProfiles.recordAll(events);
+        videoStatsAggregator.recordAll(events);
+        kpiEngine.recordAll(events);
+        recommendationCache.invalidateAll(events);
+    }
+
+    private EventProcessingResult duplicateResult(ViewEvent event) {
+        deduplicatedEvents.incrementAndGet();
+        EventProcessingResult result = new EventProcessingResult(event.getEventId(), true, "Duplicate event ignored");
+        result.setDuplicate(true);
+        return result;
+    }
+
+    /**
+     * Libérer les eventIds d'événements sortis de l'écriture, écrits ou non
+     */
+    private void release(List<ViewEvent> events) {
+        for (ViewEvent event : events) {
+            pendingEventIds.remove(event.getEventId());
+        }
+    }
+
+    private boolean mightBeDuplicate(ViewEvent event) {
+        return recentEventIds.mightContain(HyperLogLog.hash(event.getEventId()));
+    }
+
+    /**
+     * eventIds déjà stockés parmi des événements signalés par le filtre; en cas d'échec de la recherche,
+     * aucun: les événements sont écrits et l'index unique tranche
+     */
+    private Set<String> storedEventIds(List<ViewEvent> suspects) {
+        List<String> eventIds = new ArrayList<>(suspects.size());
+        for (ViewEvent event : suspects) {
+            eventIds.add(event.getEventId());
+        }
+        try {
+            return eventRepository.findExistingEventIds(eventIds);
+        } catch (Exception e) {
+            logger.warn("Duplicate lookup of {} events failed, writing them: {}", eventIds.size(), e.getMessage());
+            return Collections.emptySet();
+        }
     }
 
     /**
@@ -156,6 +311,13 @@ public class EventProcessorService {
             throw new IllegalArgumentException("Timestamp is required");
         }
         
+        // Lu une seule fois: persisté en date BSON et réutilisé par tous les agrégats
+        long timestampMillis = EventTimestamps.parse(event.getTimestamp());
+        if (timestampMillis == EventTimestamps.INVALID) {
+            throw new IllegalArgumentException("Timestamp must be epoch millis or ISO-8601");
+        }
+        event.setTimestampMillis(timestampMillis);
+        
         if (event.getDuration() < 0) {
             throw new IllegalArgumentException("Duration cannot be negative");
         }
@@ -167,7 +329,9 @@ public class EventProcessorService {
     private void enrichEvent(ViewEvent event) {
         // Ajouter timestamp si manquant
         if (event.getTimestamp() == null || event.getTimestamp().isEmpty()) {
-            event.setTimestamp(String.valueOf(System.currentTimeMillis()));
+            long now = System.currentTimeMillis();
+            event.setTimestamp(String.valueOf(now));
+            event.setTimestampMillis(now);
         }
         
         // Définir device par défaut si manquant
@@ -187,13 +351,14 @@ public class EventProcessorService {
     }
 
     /**
-     * Nettoyer les anciens événements (maintenance)
+     * Nettoyer les anciens événements (maintenance): résumés par heure puis supprimés, voir {@link RetentionManager}
      */
     public int cleanupOldEvents(long olderThanTimestamp) {
         try {
-            // Implementation dépend du repository
             logger.info("Cleanup old events older than {}", olderThanTimestamp);
-            // Cette méthode pourrait être ajoutée au repository si nécessaire
+            return (int) Math.min(Integer.MAX_VALUE, retentionManager.purge(olderThanTimestamp));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return 0;
         } catch (Exception e) {
             logger.error("Cleanup failed", e);
@@ -207,17 +372,166 @@ public class EventProcessorService {
     public ProcessingStats getProcessingStats() {
         return new ProcessingStats(
             processedEvents.get(),
-            failedEvents.get(),
-            calculateSuccessRate()
+            failedEvents.get() + (int) writeQueue.getFailedCount(),
+            calculateSuccessRate(),
+            writeQueue.depth(),
+            writeQueue.getRejectedCount(),
+            deduplicatedEvents.get() + writeQueue.getDuplicateCount(),
+            eventRepository.hasUniqueEventIds() ? "unique-index" : "best-effort"
         );
     }
 
     private double calculateSuccessRate() {
-        int total = processedEvents.get() + failedEvents.get();
+        long failed = failedEvents.get() + writeQueue.getFailedCount();
+        long total = processedEvents.get() + failed;
         if (total == 0) return 100.0;
         return (processedEvents.get() * 100.0) / total;
     }
 
+    /**
+     * Lot en cours de traitement: valide et enrichit chaque sous-lot sur le thread appelant,
+     * puis confie l'écriture (insertMany non ordonné) à l'executor avec un nombre borné
+     * d'écritures simultanées. Seuls les événements valides sont persistés; les doublons (eventId déjà
+     * persisté, répété dans le lot, en cours d'écriture par une autre requête ou refusé par l'index
+     * unique) sont comptés à part.
+     */
+    private class PipelinedBatch {
+
+        private final long startTime = System.currentTimeMillis();
+        private final Semaphore inFlightWrites = new Semaphore(MAX_IN_FLIGHT_WRITES);
+        private final List<CompletableFuture<Void>> writes = new ArrayList<>();
+        private final List<String> failedEventIds = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger persisted = new AtomicInteger();
+        private final AtomicInteger invalid = new AtomicInteger();
+        private final AtomicInteger duplicates = new AtomicInteger();
+        private final AtomicInteger writeFailures = new AtomicInteger();
+
+        void submit(List<ViewEvent> chunk) throws InterruptedException {
+            received.addAndGet(chunk.size());
+
+            // Valider, enrichir et écarter les doublons
+            List<ViewEvent> valid = new ArrayList<>(chunk.size());
+            List<ViewEvent> suspects = new ArrayList<>();
+            for (ViewEvent event : chunk) {
+                // Élément null du tableau JSON: invalide, sans eventId à signaler
+                if (event == null) {
+                    invalid.incrementAndGet();
+                    continue;
+                }
+                try {
+                    validateEvent(event);
+                    enrichEvent(event);
+                    // Répété dans le lot, ou en cours d'écriture par une autre requête
+                    if (!pendingEventIds.add(event.getEventId())) {
+                        duplicates.incrementAndGet();
+                    } else if (mightBeDuplicate(event)) {
+                        suspects.add(event);
+                    } else {
+                        valid.add(event);
+                    }
+                } catch (Exception e) {
+                    logger.debug("Event validation/enrichment failed: {}", event.getEventId(), e);
+                    invalid.incrementAndGet();
+                    recordFailure(event);
+                }
+            }
+            // Événements signalés par le filtre: une seule recherche sur l'index eventId pour le sous-lot
+            if (!suspects.isEmpty()) {
+                Set<String> stored = storedEventIds(suspects);
+                for (ViewEvent event : suspects) {
+                    if (stored.contains(event.getEventId())) {
+                        duplicates.incrementAndGet();
+                        pendingEventIds.remove(event.getEventId());
+                    } else {
+                        valid.add(event);
+                    }
+                }
+            }
+            if (valid.isEmpty()) {
+                return;
+            }
+
+            // Bloque si MAX_IN_FLIGHT_WRITES écritures sont déjà en cours
+            try {
+                inFlightWrites.acquire();
+            } catch (InterruptedException e) {
+                release(valid);
+                throw e;
+            }
+            try {
+                writes.add(CompletableFuture.runAsync(() -> write(valid), executorService));
+            } catch (RuntimeException e) {
+                inFlightWrites.release();
+                release(valid);
+                throw e;
+            }
+        }
+
+        BatchProcessingResult complete() {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+
+            int total = received.get();
+            int failed = invalid.get() + writeFailures.get();
+            long elapsed = System.currentTimeMillis() - startTime;
+
+            processedEvents.addAndGet(persisted.get());
+            failedEvents.addAndGet(failed);
+            deduplicatedEvents.addAndGet(duplicates.get());
+
+            BatchProcessingResult result = new BatchProcessingResult();
+            result.setTotalEventsProcessed(total);
+            result.setSuccessfulEvents(persisted.get());
+            result.setFailedEvents(failed);
+            result.setDuplicateEvents(duplicates.get());
+            result.setTotalProcessingTimeMs(elapsed);
+            result.setAverageProcessingTimeMs(total > 0 ? (double) elapsed / total : 0);
+            result.setFailedEventIds(new ArrayList<>(failedEventIds));
+            result.setMessage(String.format("Batch processed: %d success, %d duplicates, %d invalid, %d write failures",
+                    persisted.get(), duplicates.get(), invalid.get(), writeFailures.get()));
+            result.setTimestamp(String.valueOf(System.currentTimeMillis()));
+
+            logger.info("Batch processing completed: {} processed, {} failed in {} ms", persisted.get(), failed, elapsed);
+            return result;
+        }
+
+        private void write(List<ViewEvent> chunk) {
+            try {
+                EventRepository.UnorderedInsert insert = eventRepository.saveBatchUnordered(chunk);
+                List<ViewEvent> written = chunk;
+                if (!insert.isComplete()) {
+                    Set<Integer> rejected = new HashSet<>(insert.getFailed());
+                    Set<Integer> duplicated = new HashSet<>(insert.getDuplicates());
+                    written = new ArrayList<>(chunk.size() - rejected.size() - duplicated.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (rejected.contains(i)) {
+                            recordFailure(chunk.get(i));
+                        } else if (!duplicated.contains(i)) {
+                            written.add(chunk.get(i));
+                        }
+                    }
+                    writeFailures.addAndGet(rejected.size());
+                    duplicates.addAndGet(duplicated.size());
+                }
+                persisted.addAndGet(written.size());
+                updateAggregates(written);
+            } catch (Exception e) {
+                logger.error("Failed to persist a sub-batch of {} events", chunk.size(), e);
+                writeFailures.addAndGet(chunk.size());
+                chunk.forEach(this::recordFailure);
+            } finally {
+                release(chunk);
+                inFlightWrites.release();
+            }
+        }
+
+        private void recordFailure(ViewEvent event) {
+            if (failedEventIds.size() < MAX_REPORTED_FAILURES) {
+                failedEventIds.add(event.getEventId());
+            }
+        }
+    }
+
     /**
      * Classe interne pour les statistiques
      */
@@ -225,23 +539,41 @@ public class EventProcessorService {
         private final int processedCount;
         private final int failedCount;
         private final double successRate;
+        private final int queueDepth;
+        private final long throttledCount;
+        private final long deduplicatedCount;
+        private final String deduplication;
 
-        public ProcessingStats(int processedCount, int failedCount, double successRate) {
+        public ProcessingStats(int processedCount, int failedCount, double successRate,
+                               int queueDepth, long throttledCount, long deduplicatedCount,
+                               String deduplication) {
             this.processedCount = processedCount;
             this.failedCount = failedCount;
             this.successRate = successRate;
+            this.queueDepth = queueDepth;
+            this.throttledCount = throttledCount;
+            this.deduplicatedCount = deduplicatedCount;
+            this.deduplication = deduplication;
         }
 
         public int getProcessedCount() { return processedCount; }
         public int getFailedCount() { return failedCount; }
         public double getSuccessRate() { return successRate; }
+        public int getQueueDepth() { return queueDepth; }
+        public long getThrottledCount() { return throttledCount; }
+        public long getDeduplicatedCount() { return deduplicatedCount; }
+        /** unique-index: garantie par l'index unique; best-effort: contrôles en mémoire de cette instance seulement */
+        public String getDeduplication() { return deduplication; }
     }
 
     /**
      * Arrêt gracieux du service
+     * Vide la file d'écriture différée avant d'arrêter les threads
      */
+    @PreDestroy
     public void shutdown() {
-        executorService.shutdown();
         logger.info("EventProcessorService shutdown initiated");
+        writeQueue.shutdown(SHUTDOWN_DRAIN_TIMEOUT_MS);
+        executorService.shutdown();
     }
 }
@@ -0,0 +1,144 @@
+package com.streaming.service;
+
+import com.streaming.model.TrendingStats.VideoTrend;
+import com.streaming.model.ViewEvent;
+import com.streaming.service.aggregation.BucketRing;
+import com.streaming.service.aggregation.CountMinSketch;
+import com.streaming.service.aggregation.EventTimestamps;
+import com.streaming.service.aggregation.HeavyHitterSketch;
+import com.streaming.service.aggregation.HyperLogLog;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Vidéos les plus regardées de la dernière heure glissante, en mémoire fixe quel que soit le nombre de videoIds
+ *
+ * Chaque tranche minute porte un {@link HeavyHitterSketch}. Une requête réunit les candidats
+ * Space-Saving des tranches de l'heure et les classe par la plus petite de deux bornes supérieures de
+ * leurs vues: le Count-Min fusionné de l'heure, et la somme par tranche du compteur Space-Saving (ou du
+ * plus petit compteur si la vidéo n'y est pas suivie). Les fenêtres plus longues sont servies par
+ * {@link RollingAggregates}, qui compte exactement.
+ */
+@ApplicationScoped
+public class HeavyHitters implements ReplayTarget {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeavyHitters.class);
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static final int CANDIDATES_PER_BUCKET = 256;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1024;
+
+    private final BucketRing<HeavyHitterSketch> minuteBuckets = new BucketRing<>(MINUTE, 60,
+            () -> new HeavyHitterSketch(CANDIDATES_PER_BUCKET, SKETCH_DEPTH, SKETCH_WIDTH),
+            HeavyHitterSketch::clear);
+
+    private volatile boolean ready = false;
+
+    /**
+     * Prendre en compte un événement persisté
+     */
+    public void record(ViewEvent event) {
+        String videoId = event.getVideoId();
+        if (videoId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long timestamp = EventTimestamps.toEpochMillis(event, now);
+        long hash = HyperLogLog.hash(videoId);
+
+        minuteBuckets.update(timestamp, now, sketch -> sketch.add(videoId, hash));
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        for (ViewEvent event : events) {
+            record(event);
+        }
+    }
+
+    /**
+     * La dernière heure: la fenêtre des tranches minute
+     */
+    @Override
+    public long getReplayWindowMillis() {
+        return minuteBuckets.getRetentionMillis();
+    }
+
+    @Override
+    public void replay(ViewEvent event) {
+        record(event);
+    }
+
+    @Override
+    public void finishReplay() {
+        ready = true;
+        logger.info("Heavy hitters ready");
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Top N des vidéos de la dernière heure, avec rang (à partir de 1) et vues estimées
+     */
+    public List<VideoTrend> getTopVideos(int limit) {
+        long now = System.currentTimeMillis();
+        CountMinSketch frequencies = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        // videoId -> {hachage, excédent des compteurs suivis sur la borne des non suivis}
+        Map<String, long[]> candidates = new HashMap<>();
+        long[] untrackedBound = {0};
+        minuteBuckets.forEachBucket(now - HOUR + 1, now, (bucketStart, sketch) -> {
+            frequencies.merge(sketch.getFrequencies());
+            long bound = sketch.getUntrackedBound();
+            untrackedBound[0] += bound;
+            sketch.forEachCandidate((item, hash, count) ->
+                    candidates.computeIfAbsent(item, id -> new long[] {hash, 0})[1] += count - bound);
+        });
+
+        PriorityQueue<VideoTrend> heap = new PriorityQueue<>((a, b) -> Long.compare(a.getViews(), b.getViews()));
+        for (Map.Entry<String, long[]> candidate : candidates.entrySet()) {
+            long[] tracked = candidate.getValue();
+            long views = Math.min(frequencies.estimate(tracked[0]), untrackedBound[0] + tracked[1]);
+            if (heap.size() < limit) {
+                heap.add(new VideoTrend(candidate.getKey(), null, views, 0, 0));
+            } else if (!heap.isEmpty() && views > heap.peek().getViews()) {
+                heap.poll();
+                heap.add(new VideoTrend(candidate.getKey(), null, views, 0, 0));
+            }
+        }
+
+        List<VideoTrend> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            top.add(0, heap.poll());
+        }
+        for (int i = 0; i < top.size(); i++) {
+            top.get(i).setRank(i + 1);
+        }
+        return top;
+    }
+
+    /**
+     * Identifiants des N vidéos les plus vues de la dernière heure
+     */
+    public List<String> getTopVideoIds(int limit) {
+        List<VideoTrend> top = getTopVideos(limit);
+        List<String> ids = new ArrayList<>(top.size());
+        for (VideoTrend trend : top) {
+            ids.add(trend.getVideoId());
+        }
+        return ids;
+    }
+}
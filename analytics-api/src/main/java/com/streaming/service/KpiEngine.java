@@ -0,0 +1,350 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.model.ViewEvent;
+import com.streaming.service.AnalyticsService.PerformanceKPIs;
+import com.streaming.service.aggregation.EventTimestamps;
+import com.streaming.service.aggregation.Interner;
+import com.streaming.service.aggregation.Timeframe;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * KPIs par fenêtre (vues, utilisateurs actifs, temps de visionnage moyen, taux d'engagement, rétention)
+ * tenus à jour à l'ingestion
+ *
+ * Chaque utilisateur reçoit un ordinal dense; chaque tranche de temps garde ses compteurs et le
+ * bitmap des ordinaux actifs. Trois niveaux: tranches minute pour 1h, heure pour 24h, jour pour 7d et
+ * 30d. Les utilisateurs actifs d'une fenêtre sont l'union (OR) des bitmaps de ses tranches.
+ * La rétention à N jours ({@code KPI_RETENTION_DAYS}, 7 par défaut) rapporte, pour chaque cohorte
+ * (utilisateurs vus pour la première fois le jour D) dont le jour D+N tombe dans la fenêtre, ceux
+ * actifs le jour D+N à la taille de la cohorte. L'engagement est la part des événements WATCH d'au
+ * moins {@code KPI_ENGAGED_WATCH_SECONDS} (30 s par défaut) de visionnage.
+ * Au démarrage, les compteurs depuis l'origine et le premier jour de chaque utilisateur viennent de
+ * regroupements côté serveur; seules les tranches sont rejouées depuis les événements.
+ */
+@ApplicationScoped
+public class KpiEngine implements ReplayTarget {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiEngine.class);
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private static final String WATCH = "WATCH";
+    private static final int MAX_RETENTION_DAYS = 30;
+
+    private final int engagedWatchSeconds = Settings.getInt("KPI_ENGAGED_WATCH_SECONDS", 30);
+    private final int retentionDays =
+            Math.max(1, Math.min(Settings.getInt("KPI_RETENTION_DAYS", 7), MAX_RETENTION_DAYS));
+
+    private final Interner users = new Interner();
+    /** Jour (epoch days) de la première activité connue, par ordinal d'utilisateur */
+    private int[] firstDay = new int[1024];
+
+    private final Tier minutes = new Tier(MINUTE, 60 + 1);
+    private final Tier hours = new Tier(HOUR, 24 + 1);
+    /** 30 jours de fenêtre plus les N jours qui séparent une cohorte de son jour de rétention */
+    private final Tier days = new Tier(DAY, 30 + MAX_RETENTION_DAYS + 1);
+    private final Slot allTime = new Slot();
+
+    private volatile boolean ready = false;
+
+    public KpiEngine() {
+        Arrays.fill(firstDay, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public synchronized void recordAll(List<ViewEvent> events) {
+        long now = System.currentTimeMillis();
+        for (ViewEvent event : events) {
+            record(event, now);
+        }
+    }
+
+    /**
+     * Initialiser un utilisateur depuis une paire (vidéo, utilisateur) regroupée côté serveur, avec la date
+     * de son premier événement sur cette vidéo
+     */
+    public synchronized void seedUser(String userId, long firstMillis) {
+        int user = users.intern(userId);
+        updateFirstDay(user, Math.min(firstMillis, System.currentTimeMillis()));
+        allTime.users.set(user);
+    }
+
+    /**
+     * Initialiser les compteurs depuis l'origine avec une ligne (durée regardée, WATCH, nombre d'événements)
+     * regroupée côté serveur
+     */
+    public synchronized void seedViews(int duration, boolean watch, long count) {
+        duration = Math.max(0, duration);
+        allTime.views += count;
+        allTime.watchTime += duration * count;
+        if (watch) {
+            allTime.watchEvents += count;
+            if (duration >= engagedWatchSeconds) {
+                allTime.engagedEvents += count;
+            }
+        }
+    }
+
+    /**
+     * Ajouter les événements supprimés par la rétention, dont seuls les totaux restent: {vues, secondes}
+     */
+    public synchronized void seedArchived(long[] archived) {
+        allTime.views += archived[0];
+        allTime.watchTime += archived[1];
+    }
+
+    /**
+     * Les 60 jours des tranches jour (30 jours de fenêtre et l'écart maximal d'une cohorte)
+     */
+    @Override
+    public long getReplayWindowMillis() {
+        return days.slots.length * DAY;
+    }
+
+    /**
+     * Rejouer un événement dans les tranches seulement, les compteurs depuis l'origine étant initialisés par
+     * {@link #seedViews} et {@link #seedUser}
+     */
+    @Override
+    public synchronized void replay(ViewEvent event) {
+        long now = System.currentTimeMillis();
+        long timestamp = Math.min(EventTimestamps.toEpochMillis(event, now), now);
+        int user = event.getUserId() != null ? users.intern(event.getUserId()) : -1;
+        if (user >= 0) {
+            updateFirstDay(user, timestamp);
+        }
+        int duration = Math.max(0, event.getDuration());
+        boolean watch = WATCH.equalsIgnoreCase(event.getAction());
+        recordInTiers(timestamp, now, user, duration, watch, watch && duration >= engagedWatchSeconds);
+    }
+
+    @Override
+    public void finishReplay() {
+        ready = true;
+        logger.info("KPI engine ready: {} users", users.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * KPIs de la fenêtre, calculés depuis les tranches qu'elle recouvre
+     */
+    public synchronized PerformanceKPIs compute(Timeframe timeframe) {
+        long now = System.currentTimeMillis();
+        Slot totals;
+        BitSet active;
+        long windowStart;
+        if (timeframe == Timeframe.ALL_TIME) {
+            totals = allTime;
+            active = null;
+            windowStart = Long.MIN_VALUE;
+        } else {
+            windowStart = now - timeframe.getMillis() + 1;
+            totals = new Slot();
+            active = new BitSet();
+            tierFor(timeframe).sum(windowStart, now, totals, active);
+        }
+
+        PerformanceKPIs kpis = new PerformanceKPIs();
+        kpis.setTotalViews(totals.views);
+        kpis.setActiveUsers(active != null ? active.cardinality() : users.size());
+        kpis.setAverageWatchTime(totals.views > 0 ? (double) totals.watchTime / totals.views : 0.0);
+        kpis.setEngagementRate(totals.watchEvents > 0 ? (double) totals.engagedEvents / totals.watchEvents : 0.0);
+        kpis.setRetentionRate(retention(windowStart, now));
+        return kpis;
+    }
+
+    /**
+     * Vues et temps de visionnage cumulés depuis l'origine, résumés de la rétention compris: {vues, secondes}
+     */
+    public synchronized long[] allTimeTotals() {
+        return new long[]{allTime.views, allTime.watchTime};
+    }
+
+    /**
+     * Vues des tranches minute qui recouvrent les {@code millis} dernières millisecondes (au plus 1h)
+     */
+    public synchronized long recentViews(long millis) {
+        long now = System.currentTimeMillis();
+        Slot totals = new Slot();
+        minutes.sum(now - Math.min(millis, HOUR) + 1, now, totals, new BitSet());
+        return totals.views;
+    }
+
+    private void record(ViewEvent event, long now) {
+        long timestamp = Math.min(EventTimestamps.toEpochMillis(event, now), now);
+        int user = event.getUserId() != null ? users.intern(event.getUserId()) : -1;
+        if (user >= 0) {
+            updateFirstDay(user, timestamp);
+        }
+
+        int duration = Math.max(0, event.getDuration());
+        boolean watch = WATCH.equalsIgnoreCase(event.getAction());
+        boolean engaged = watch && duration >= engagedWatchSeconds;
+        allTime.add(user, duration, watch, engaged);
+        recordInTiers(timestamp, now, user, duration, watch, engaged);
+    }
+
+    private void recordInTiers(long timestamp, long now, int user, int duration, boolean watch, boolean engaged) {
+        minutes.add(timestamp, now, user, duration, watch, engaged);
+        hours.add(timestamp, now, user, duration, watch, engaged);
+        days.add(timestamp, now, user, duration, watch, engaged);
+    }
+
+    private void updateFirstDay(int user, long timestamp) {
+        int day = (int) Math.floorDiv(timestamp, DAY);
+        if (user >= firstDay.length) {
+            int previous = firstDay.length;
+            firstDay = Arrays.copyOf(firstDay, Math.max(previous * 2, user + 1));
+            Arrays.fill(firstDay, previous, firstDay.length, Integer.MAX_VALUE);
+        }
+        firstDay[user] = Math.min(firstDay[user], day);
+    }
+
+    /**
+     * Rétention à N jours des cohortes dont le jour D+N est dans la fenêtre
+     */
+    private double retention(long windowStart, long now) {
+        long today = Math.floorDiv(now, DAY);
+        long oldest = today - days.slots.length + 1;
+        long fromDay = Math.max(windowStart == Long.MIN_VALUE ? oldest : Math.floorDiv(windowStart, DAY),
+                oldest + retentionDays);
+
+        long cohortSize = 0;
+        long retained = 0;
+        for (long returnDay = fromDay; returnDay <= today; returnDay++) {
+            long cohortDay = returnDay - retentionDays;
+            Slot cohortSlot = days.slot(cohortDay);
+            if (cohortSlot == null) {
+                continue;
+            }
+            Slot returnSlot = days.slot(returnDay);
+            for (int user = cohortSlot.users.nextSetBit(0); user >= 0; user = cohortSlot.users.nextSetBit(user + 1)) {
+                if (firstDay[user] == cohortDay) {
+                    cohortSize++;
+                    if (returnSlot != null && returnSlot.users.get(user)) {
+                        retained++;
+                    }
+                }
+            }
+        }
+        return cohortSize > 0 ? (double) retained / cohortSize : 0.0;
+    }
+
+    private Tier tierFor(Timeframe timeframe) {
+        switch (timeframe) {
+            case LAST_HOUR:
+                return minutes;
+            case LAST_DAY:
+                return hours;
+            default:
+                return days;
+        }
+    }
+
+    /**
+     * Compteurs et bitmap des utilisateurs actifs d'une tranche
+     */
+    private static final class Slot {
+        long index = Long.MIN_VALUE;
+        long views;
+        long watchTime;
+        long watchEvents;
+        long engagedEvents;
+        final BitSet users = new BitSet();
+
+        void add(int user, int duration, boolean watch, boolean engaged) {
+            views++;
+            watchTime += duration;
+            if (watch) {
+                watchEvents++;
+            }
+            if (engaged) {
+                engagedEvents++;
+            }
+            if (user >= 0) {
+                users.set(user);
+            }
+        }
+
+        void reset(long newIndex) {
+            index = newIndex;
+            views = 0;
+            watchTime = 0;
+            watchEvents = 0;
+            engagedEvents = 0;
+            users.clear();
+        }
+    }
+
+    /**
+     * Anneau de tranches d'une durée fixe; une tranche sortie de la fenêtre est vidée et réutilisée
+     */
+    private static final class Tier {
+        final long bucketMillis;
+        final Slot[] slots;
+
+        Tier(long bucketMillis, int count) {
+            this.bucketMillis = bucketMillis;
+            this.slots = new Slot[count];
+            for (int i = 0; i < count; i++) {
+                slots[i] = new Slot();
+            }
+        }
+
+        void add(long timestamp, long now, int user, int duration, boolean watch, boolean engaged) {
+            long index = Math.floorDiv(timestamp, bucketMillis);
+            if (index <= Math.floorDiv(now, bucketMillis) - slots.length) {
+                return;
+            }
+            Slot slot = slots[(int) Math.floorMod(index, (long) slots.length)];
+            if (slot.index != index) {
+                if (slot.index > index) {
+                    // Tranche déjà réutilisée par une période plus récente
+                    return;
+                }
+                slot.reset(index);
+            }
+            slot.add(user, duration, watch, engaged);
+        }
+
+        /**
+         * Tranche de la période {@code index}, null si elle est vide ou sortie de l'anneau
+         */
+        Slot slot(long index) {
+            Slot slot = slots[(int) Math.floorMod(index, (long) slots.length)];
+            return slot.index == index ? slot : null;
+        }
+
+        /**
+         * Additionner les tranches dont le début est dans [fromMillis, now] (la première partiellement couverte)
+         */
+        void sum(long fromMillis, long now, Slot totals, BitSet active) {
+            long nowIndex = Math.floorDiv(now, bucketMillis);
+            long fromIndex = Math.max(Math.floorDiv(fromMillis, bucketMillis), nowIndex - slots.length + 1);
+            for (long index = fromIndex; index <= nowIndex; index++) {
+                Slot slot = slot(index);
+                if (slot != null) {
+                    totals.views += slot.views;
+                    totals.watchTime += slot.watchTime;
+                    totals.watchEvents += slot.watchEvents;
+                    totals.engagedEvents += slot.engagedEvents;
+                    active.or(slot.users);
+                }
+            }
+        }
+    }
+}
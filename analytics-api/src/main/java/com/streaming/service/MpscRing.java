@@ -0,0 +1,87 @@
+package com.streaming.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Anneau borné sans verrou, plusieurs producteurs / un seul consommateur.
+ *
+ * Chaque emplacement porte un numéro de séquence: un producteur réserve un emplacement par CAS sur
+ * {@code tail} puis publie l'élément en avançant la séquence; le consommateur unique lit dans
+ * l'ordre et libère l'emplacement pour le tour suivant. {@link #offer} échoue immédiatement si
+ * l'anneau est plein, ce qui permet d'appliquer une contre-pression côté API.
+ */
+final class MpscRing<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    MpscRing(int requestedCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publier un élément (thread-safe)
+     *
+     * @return false si l'anneau est plein
+     */
+    boolean offer(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (delta < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Retirer jusqu'à {@code max} éléments publiés (consommateur unique uniquement)
+     *
+     * @return nombre d'éléments ajoutés à {@code target}
+     */
+    int drainTo(List<E> target, int max) {
+        long position = head;
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add(buffer.get(index));
+            buffer.lazySet(index, null);
+            sequences.lazySet(index, position + capacity);
+            position++;
+            drained++;
+        }
+        head = position;
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,133 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.model.VideoRecommendation;
+import com.streaming.repository.UserRecommendationRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Précalcul périodique des recommandations de tous les utilisateurs actifs
+ *
+ * Les utilisateurs suivis par {@link CoViewIndex} sont découpés en lots de {@link #SHARD_SIZE}
+ * traités en fork-join; chaque lot est écrit par un seul {@code bulkWrite} d'upserts dans la
+ * collection {@code recommendations}, qui sert ensuite les lectures.
+ * Intervalle: {@code RECOMMENDATION_BATCH_INTERVAL_MS} (15 min par défaut).
+ */
+@ApplicationScoped
+public class RecommendationBatchJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationBatchJob.class);
+
+    private static final int SHARD_SIZE = 500;
+    private static final int RECOMMENDATIONS_PER_USER = 50;
+
+    @Inject
+    private AnalyticsService analyticsService;
+
+    @Inject
+    private CoViewIndex coViewIndex;
+
+    @Inject
+    private UserRecommendationRepository userRecommendationRepository;
+
+    private final long intervalMillis = Settings.getLong("RECOMMENDATION_BATCH_INTERVAL_MS", 15 * 60_000L);
+    private final int parallelism = Settings.getInt("RECOMMENDATION_BATCH_PARALLELISM",
+            Runtime.getRuntime().availableProcessors());
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Planifier le lot: une première exécution immédiate, puis à intervalle fixe
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "recommendation-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Recalculer et matérialiser les recommandations de tous les utilisateurs actifs
+     *
+     * @return nombre de recommandations écrites
+     */
+    public int run(List<String> userIds) {
+        long generatedAt = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int written = pool.invoke(new ShardTask(userIds, 0, userIds.size(), generatedAt));
+            logger.info("Recommendations materialized: {} users, {} recommendations in {} ms",
+                    userIds.size(), written, System.currentTimeMillis() - generatedAt);
+            return written;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void runSafely() {
+        try {
+            run(coViewIndex.activeUserIds());
+        } catch (Exception e) {
+            logger.error("Recommendation batch failed", e);
+        }
+    }
+
+    /**
+     * Découpe récursive de la liste d'utilisateurs jusqu'à des lots de {@link #SHARD_SIZE}
+     */
+    private final class ShardTask extends RecursiveTask<Integer> {
+        private final List<String> userIds;
+        private final int from;
+        private final int to;
+        private final long generatedAt;
+
+        ShardTask(List<String> userIds, int from, int to, long generatedAt) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+            this.generatedAt = generatedAt;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from > SHARD_SIZE) {
+                int middle = (from + to) >>> 1;
+                ShardTask left = new ShardTask(userIds, from, middle, generatedAt);
+                left.fork();
+                int right = new ShardTask(userIds, middle, to, generatedAt).compute();
+                return left.join() + right;
+            }
+            // Un utilisateur sans recommandation garde sa liste vide: ses anciennes lignes sont supprimées
+            Map<String, List<VideoRecommendation>> shard = new HashMap<>();
+            for (String userId : userIds.subList(from, to)) {
+                shard.put(userId, analyticsService.computeRecommendations(userId, RECOMMENDATIONS_PER_USER));
+            }
+            return shard.isEmpty() ? 0 : userRecommendationRepository.replaceAll(shard, generatedAt);
+        }
+    }
+}
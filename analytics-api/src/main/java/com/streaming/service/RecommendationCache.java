@@ -0,0 +1,178 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.model.VideoRecommendation;
+import com.streaming.model.ViewEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Cache des recommandations par (userId, limit, category), borné en taille (LRU) et en durée de vie
+ *
+ * Toutes les entrées d'un utilisateur sont invalidées dès qu'un de ses événements est persisté.
+ * Un chargement commencé avant une invalidation n'est pas mis en cache: chaque utilisateur a un
+ * jeton {@link UserKeys} remplacé à l'invalidation, comparé par identité au moment de l'insertion.
+ * Taille: {@code RECOMMENDATION_CACHE_SIZE} (10 000), durée de vie: {@code RECOMMENDATION_CACHE_TTL_MS} (60 s).
+ */
+@ApplicationScoped
+public class RecommendationCache {
+
+    private final int maxEntries = Settings.getInt("RECOMMENDATION_CACHE_SIZE", 10_000);
+    private final long ttlMillis = Settings.getLong("RECOMMENDATION_CACHE_TTL_MS", 60_000L);
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<String, UserKeys> keysByUser = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long loads;
+    private long loadNanos;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * Recommandations en cache, ou chargées par {@code loader} puis mises en cache
+     * (les listes vides ne sont pas mises en cache)
+     */
+    public List<VideoRecommendation> get(String userId, int limit, String category,
+                                         Supplier<List<VideoRecommendation>> loader) {
+        Key key = new Key(userId, limit, category);
+        UserKeys token;
+        synchronized (lock) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.loadedAt <= ttlMillis) {
+                    hits++;
+                    return entry.recommendations;
+                }
+                remove(key);
+                expirations++;
+            }
+            misses++;
+            token = keysByUser.computeIfAbsent(userId, id -> new UserKeys());
+        }
+
+        long start = System.nanoTime();
+        List<VideoRecommendation> recommendations = List.copyOf(loader.get());
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (lock) {
+            loads++;
+            loadNanos += elapsed;
+            if (keysByUser.get(userId) != token) {
+                // Invalidé pendant le chargement: le résultat est peut-être déjà périmé
+                return recommendations;
+            }
+            if (recommendations.isEmpty()) {
+                if (token.keys.isEmpty()) {
+                    keysByUser.remove(userId);
+                }
+                return recommendations;
+            }
+            entries.put(key, new Entry(recommendations, System.currentTimeMillis()));
+            token.keys.add(key);
+            evictEldest();
+        }
+        return recommendations;
+    }
+
+    /**
+     * Invalider les entrées des utilisateurs d'un lot d'événements persistés
+     */
+    public void invalidateAll(List<ViewEvent> events) {
+        synchronized (lock) {
+            for (ViewEvent event : events) {
+                UserKeys removed = keysByUser.remove(event.getUserId());
+                if (removed != null) {
+                    for (Key key : removed.keys) {
+                        entries.remove(key);
+                    }
+                    invalidations += removed.keys.size();
+                }
+            }
+        }
+    }
+
+    /**
+     * Métriques pour l'endpoint /stats
+     */
+    public Map<String, Object> snapshot() {
+        synchronized (lock) {
+            long requests = hits + misses;
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("size", entries.size());
+            metrics.put("hitRate", requests > 0 ? hits / (double) requests : 0.0);
+            metrics.put("hits", hits);
+            metrics.put("misses", misses);
+            metrics.put("averageLoadMs", loads > 0 ? loadNanos / 1_000_000.0 / loads : 0.0);
+            metrics.put("evictions", evictions);
+            metrics.put("expirations", expirations);
+            metrics.put("invalidations", invalidations);
+            return metrics;
+        }
+    }
+
+    private void evictEldest() {
+        while (entries.size() > maxEntries) {
+            remove(entries.keySet().iterator().next());
+            evictions++;
+        }
+    }
+
+    private void remove(Key key) {
+        entries.remove(key);
+        UserKeys userKeys = keysByUser.get(key.userId);
+        if (userKeys != null && userKeys.keys.remove(key) && userKeys.keys.isEmpty()) {
+            keysByUser.remove(key.userId);
+        }
+    }
+
+    private static final class UserKeys {
+        final Set<Key> keys = new HashSet<>(4);
+    }
+
+    private static final class Entry {
+        final List<VideoRecommendation> recommendations;
+        final long loadedAt;
+
+        Entry(List<VideoRecommendation> recommendations, long loadedAt) {
+            this.recommendations = recommendations;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static final class Key {
+        final String userId;
+        final int limit;
+        final String category;
+
+        Key(String userId, int limit, String category) {
+            this.userId = userId;
+            this.limit = limit;
+            this.category = category;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return limit == other.limit && userId.equals(other.userId) && Objects.equals(category, other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, limit, category);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.streaming.service;
+
+import com.streaming.model.ViewEvent;
+
+/**
+ * Agrégat en mémoire dont les fenêtres glissantes sont rechargées au démarrage par le rejeu partagé
+ * de {@link AnalyticsBootstrap}
+ *
+ * Le rejeu lit une seule fois, dans l'ordre chronologique, les événements de la plus longue fenêtre
+ * et ne transmet à chaque agrégat que ceux de la sienne. Les parties cumulées depuis l'origine ne
+ * sont pas rejouées: elles sont initialisées depuis des agrégations $group côté serveur.
+ */
+interface ReplayTarget {
+
+    /**
+     * Profondeur d'historique à rejouer, en millisecondes avant le démarrage
+     */
+    long getReplayWindowMillis();
+
+    /**
+     * Prendre en compte un événement rejoué de la fenêtre
+     */
+    void replay(ViewEvent event);
+
+    /**
+     * Fin du rejeu: l'agrégat peut servir les requêtes
+     */
+    void finishReplay();
+}
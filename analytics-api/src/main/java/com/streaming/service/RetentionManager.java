@@ -0,0 +1,167 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.repository.EventRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rétention des événements bruts: au-delà de {@code EVENTS_RETENTION_DAYS} (90 jours par défaut), les
+ * événements sont résumés par vidéo et par heure dans {@code viewevents_hourly}, puis supprimés
+ *
+ * La période à purger est traitée par jour UTC, du jour du plus ancien événement à la limite alignée
+ * sur l'heure: résumé du jour ($group + $merge), puis suppression de ses événements par lots de
+ * {@code RETENTION_DELETE_BATCH} (5000) lus dans l'ordre de l'index timestamp, avec une pause de
+ * {@code RETENTION_THROTTLE_MS} (100 ms) entre deux lots pour laisser passer l'ingestion.
+ * Seuls les événements couverts par le marqueur de résumé du jour sont supprimés; un événement arrivé
+ * en retard dans un jour déjà résumé est ajouté aux heures existantes à la purge suivante, et une
+ * purge interrompue reprend sans compter deux fois.
+ * Intervalle: {@code RETENTION_INTERVAL_MS} (1 h par défaut); {@code EVENTS_RETENTION_DAYS=0} désactive la purge.
+ */
+@ApplicationScoped
+public class RetentionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionManager.class);
+
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    @Inject
+    private EventRepository eventRepository;
+
+    private final long retentionMillis = Settings.getLong("EVENTS_RETENTION_DAYS", 90L) * DAY;
+    private final long intervalMillis = Settings.getLong("RETENTION_INTERVAL_MS", HOUR);
+    private final int deleteBatch = Math.max(1, Settings.getInt("RETENTION_DELETE_BATCH", 5_000));
+    private final long throttleMillis = Settings.getLong("RETENTION_THROTTLE_MS", 100L);
+
+    private ScheduledExecutorService scheduler;
+
+    // Avancement de la purge en cours ou de la dernière purge
+    private volatile boolean running;
+    private volatile long cutoff;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile int daysDone;
+    private volatile int daysTotal;
+    private volatile long deleted;
+    private volatile long reclaimedBytes;
+    private volatile long totalDeleted;
+    private volatile long totalReclaimedBytes;
+    private volatile String lastError;
+
+    /**
+     * Planifier la purge: une première exécution immédiate, puis à intervalle fixe
+     */
+    public synchronized void start() {
+        if (scheduler != null || retentionMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Résumer puis supprimer les événements antérieurs à l'heure qui contient {@code olderThanMillis}
+     *
+     * @return nombre d'événements supprimés
+     */
+    public synchronized long purge(long olderThanMillis) throws InterruptedException {
+        long hourCutoff = Math.floorDiv(olderThanMillis, HOUR) * HOUR;
+        long oldest = eventRepository.oldestEventMillis();
+        if (oldest < 0 || oldest >= hourCutoff) {
+            return 0;
+        }
+
+        long sliceStart = Math.floorDiv(oldest, DAY) * DAY;
+        running = true;
+        cutoff = hourCutoff;
+        startedAt = System.currentTimeMillis();
+        daysDone = 0;
+        daysTotal = (int) ((hourCutoff - sliceStart + DAY - 1) / DAY);
+        deleted = 0;
+        reclaimedBytes = 0;
+        lastError = null;
+        long sizeBefore = eventRepository.dataSizeBytes();
+        try {
+            while (sliceStart < hourCutoff) {
+                long sliceEnd = Math.min(sliceStart + DAY, hourCutoff);
+                eventRepository.rollUpHourly(sliceStart, sliceEnd);
+                long removed;
+                while ((removed = eventRepository.deleteRolledUp(sliceStart, deleteBatch)) > 0) {
+                    deleted += removed;
+                    totalDeleted += removed;
+                    if (throttleMillis > 0) {
+                        Thread.sleep(throttleMillis);
+                    }
+                }
+                daysDone++;
+                logger.info("Retention: events before {} rolled up and deleted ({}/{} days, {} events)",
+                        Instant.ofEpochMilli(sliceEnd), daysDone, daysTotal, deleted);
+                sliceStart = sliceEnd;
+            }
+        } finally {
+            long sizeAfter = eventRepository.dataSizeBytes();
+            if (sizeBefore >= 0 && sizeAfter >= 0) {
+                reclaimedBytes = Math.max(0, sizeBefore - sizeAfter);
+                totalReclaimedBytes += reclaimedBytes;
+            }
+            finishedAt = System.currentTimeMillis();
+            running = false;
+        }
+        logger.info("Retention: {} events deleted, {} bytes reclaimed in {} ms",
+                deleted, reclaimedBytes, finishedAt - startedAt);
+        return deleted;
+    }
+
+    /**
+     * Avancement de la purge en cours (ou de la dernière) et cumuls depuis le démarrage
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", retentionMillis > 0);
+        status.put("retentionDays", retentionMillis / DAY);
+        status.put("running", running);
+        status.put("cutoff", cutoff > 0 ? Instant.ofEpochMilli(cutoff).toString() : null);
+        status.put("daysDone", daysDone);
+        status.put("daysTotal", daysTotal);
+        status.put("deletedEvents", deleted);
+        status.put("reclaimedBytes", reclaimedBytes);
+        status.put("durationMillis", startedAt == 0 ? 0 : (running ? System.currentTimeMillis() : finishedAt) - startedAt);
+        status.put("totalDeletedEvents", totalDeleted);
+        status.put("totalReclaimedBytes", totalReclaimedBytes);
+        status.put("lastError", lastError);
+        return status;
+    }
+
+    private void runSafely() {
+        try {
+            purge(System.currentTimeMillis() - retentionMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            logger.error("Event retention failed", e);
+        }
+    }
+}
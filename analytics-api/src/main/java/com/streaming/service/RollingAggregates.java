@@ -0,0 +1,285 @@
+package com.streaming.service;
+
+import com.streaming.model.VideoStats;
+import com.streaming.model.ViewEvent;
+import com.streaming.service.aggregation.EventTimestamps;
+import com.streaming.service.aggregation.Interner;
+import com.streaming.service.aggregation.LongKeyCounters;
+import com.streaming.service.aggregation.TimeBuckets;
+import com.streaming.service.aggregation.Timeframe;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Agrégats glissants par tranches de temps, indexés par (videoId, catégorie, deviceType)
+ *
+ * Trois niveaux: tranches minute pour 1h, tranches heure pour 24h et 7d, tranches jour pour 30d.
+ * Une requête sur une fenêtre ne somme que les tranches concernées au lieu de rescanner l'historique.
+ * Chaque niveau couvre deux fois sa plus longue fenêtre afin de comparer une fenêtre à la précédente.
+ */
+@ApplicationScoped
+public class RollingAggregates implements ReplayTarget {
+
+    private static final Logger logger = LoggerFactory.getLogger(RollingAggregates.class);
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    public static final String UNKNOWN_CATEGORY = "unknown";
+
+    /**
+     * Valeur regroupant les catégories et types d'appareil au-delà de {@link #MAX_DIMENSION_VALUES}
+     */
+    public static final String OTHER = "other";
+
+    /**
+     * Nombre de valeurs distinctes tenant sur les 16 bits d'une dimension de la clé composite
+     */
+    static final int MAX_DIMENSION_VALUES = 1 << 16;
+
+    /**
+     * Dimension d'agrégation extraite de la clé composite
+     */
+    public enum Dimension {
+        VIDEO(32, 0xFFFFFFFFL),
+        CATEGORY(16, 0xFFFFL),
+        DEVICE(0, 0xFFFFL);
+
+        private final int shift;
+        private final long mask;
+
+        Dimension(int shift, long mask) {
+            this.shift = shift;
+            this.mask = mask;
+        }
+
+        public long extract(long key) {
+            return (key >>> shift) & mask;
+        }
+    }
+
+    private final Interner videoIndex = new Interner();
+    private final Interner categoryIndex = new Interner();
+    private final Interner deviceIndex = new Interner();
+
+    private final TimeBuckets minuteBuckets = new TimeBuckets(MINUTE, 2 * 60);
+    private final TimeBuckets hourBuckets = new TimeBuckets(HOUR, 2 * 7 * 24);
+    private final TimeBuckets dayBuckets = new TimeBuckets(DAY, 2 * 30);
+
+    private volatile Function<String, String> categoryResolver = videoId -> UNKNOWN_CATEGORY;
+    private volatile boolean ready = false;
+
+    public RollingAggregates() {
+        // "other" prend l'ordinal 0: toujours disponible quand une dimension est pleine
+        categoryIndex.intern(OTHER);
+        deviceIndex.intern(OTHER);
+    }
+
+    /**
+     * Prendre en compte un événement persisté
+     */
+    public void record(ViewEvent event) {
+        long now = System.currentTimeMillis();
+        long timestamp = EventTimestamps.toEpochMillis(event, now);
+        long key = key(event);
+        long duration = event.getDuration();
+
+        minuteBuckets.add(timestamp, now, key, 1, duration);
+        hourBuckets.add(timestamp, now, key, 1, duration);
+        dayBuckets.add(timestamp, now, key, 1, duration);
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        for (ViewEvent event : events) {
+            record(event);
+        }
+    }
+
+    /**
+     * 60 jours: la fenêtre des tranches jour
+     */
+    @Override
+    public long getReplayWindowMillis() {
+        return dayBuckets.getRetentionMillis();
+    }
+
+    @Override
+    public void replay(ViewEvent event) {
+        record(event);
+    }
+
+    @Override
+    public void finishReplay() {
+        ready = true;
+        logger.info("Rolling aggregates ready: {} videos", videoIndex.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Définir la résolution videoId → catégorie utilisée à l'ingestion
+     */
+    public void setCategoryResolver(Function<String, String> categoryResolver) {
+        this.categoryResolver = categoryResolver;
+    }
+
+    /**
+     * Somme des compteurs de la fenêtre, regroupés selon une dimension (clé = ordinal de la dimension)
+     */
+    public LongKeyCounters aggregate(Timeframe timeframe, Dimension dimension) {
+        long now = System.currentTimeMillis();
+        TimeBuckets tier = tierFor(timeframe);
+        tier.evict(now);
+
+        LongKeyCounters result = new LongKeyCounters(1024);
+        tier.forEachBucket(now - timeframe.getMillis() + 1, now, (bucketStart, counters) ->
+            counters.forEach((key, views, watchTime) ->
+                result.add(dimension.extract(key), views, watchTime)));
+        return result;
+    }
+
+    /**
+     * Parcourt les tranches du niveau adapté à la fenêtre dont le début est dans [fromMillis, now]
+     */
+    public void forEachBucket(Timeframe timeframe, long fromMillis, long now, TimeBuckets.BucketVisitor visitor) {
+        TimeBuckets tier = tierFor(timeframe);
+        tier.evict(now);
+        tier.forEachBucket(fromMillis, now, visitor);
+    }
+
+    /**
+     * Durée d'une tranche du niveau adapté à la fenêtre
+     */
+    public long getBucketMillis(Timeframe timeframe) {
+        return tierFor(timeframe).getBucketMillis();
+    }
+
+    public String videoName(long ordinal) {
+        return videoIndex.name((int) ordinal);
+    }
+
+    public String categoryName(long ordinal) {
+        return categoryIndex.name((int) ordinal);
+    }
+
+    public String deviceName(long ordinal) {
+        return deviceIndex.name((int) ordinal);
+    }
+
+    /**
+     * Top N des vidéos sur la fenêtre demandée
+     */
+    public List<VideoStats> getTopVideos(int limit, Timeframe timeframe) {
+        LongKeyCounters perVideo = aggregate(timeframe, Dimension.VIDEO);
+
+        PriorityQueue<long[]> heap = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+        perVideo.forEach((video, views, watchTime) -> {
+            if (heap.size() < limit) {
+                heap.add(new long[] {video, views, watchTime});
+            } else if (!heap.isEmpty() && views > heap.peek()[1]) {
+                heap.poll();
+                heap.add(new long[] {video, views, watchTime});
+            }
+        });
+
+        List<VideoStats> videos = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            long[] entry = heap.poll();
+            VideoStats vs = new VideoStats();
+            vs.setVideoId(videoIndex.name((int) entry[0]));
+            vs.setTotalViews(entry[1]);
+            vs.setTotalWatchTime(entry[2]);
+            vs.setAverageWatchTime(entry[2] / Math.max(entry[1], 1));
+            videos.add(0, vs);
+        }
+        return videos;
+    }
+
+    /**
+     * Nombre total de vues sur la fenêtre
+     */
+    public long getTotalViews(Timeframe timeframe) {
+        return getTotals(timeframe)[0];
+    }
+
+    /**
+     * Vues et durée de visionnage cumulée sur la fenêtre: {views, watchTime}
+     */
+    public long[] getTotals(Timeframe timeframe) {
+        long[] totals = new long[2];
+        aggregate(timeframe, Dimension.DEVICE).forEach((device, views, watchTime) -> {
+            totals[0] += views;
+            totals[1] += watchTime;
+        });
+        return totals;
+    }
+
+    /**
+     * Vues par catégorie sur la fenêtre
+     */
+    public Map<String, Long> getViewsPerCategory(Timeframe timeframe) {
+        return namedViews(aggregate(timeframe, Dimension.CATEGORY), categoryIndex);
+    }
+
+    /**
+     * Vues par type d'appareil sur la fenêtre
+     */
+    public Map<String, Long> getViewsPerDeviceType(Timeframe timeframe) {
+        return namedViews(aggregate(timeframe, Dimension.DEVICE), deviceIndex);
+    }
+
+    private Map<String, Long> namedViews(LongKeyCounters counters, Interner names) {
+        Map<String, Long> result = new HashMap<>();
+        counters.forEach((ordinal, views, watchTime) -> result.put(names.name((int) ordinal), views));
+        return result;
+    }
+
+    private TimeBuckets tierFor(Timeframe timeframe) {
+        switch (timeframe) {
+            case LAST_HOUR: return minuteBuckets;
+            case LAST_DAY:
+            case LAST_WEEK: return hourBuckets;
+            default: return dayBuckets;
+        }
+    }
+
+    private long key(ViewEvent event) {
+        String deviceType = event.getDeviceType() != null ? event.getDeviceType() : "unknown";
+        String category = categoryResolver.apply(event.getVideoId());
+        long video = videoIndex.intern(event.getVideoId());
+        long categoryOrdinal = boundedOrdinal(categoryIndex, category != null ? category : UNKNOWN_CATEGORY);
+        long device = boundedOrdinal(deviceIndex, deviceType);
+        return (video << 32) | (categoryOrdinal << 16) | device;
+    }
+
+    /**
+     * Ordinal sur 16 bits d'une valeur de dimension; une fois la dimension pleine, les nouvelles valeurs
+     * sont comptées sous "other" au lieu de déborder sur les bits de la dimension voisine
+     */
+    private static long boundedOrdinal(Interner index, String name) {
+        int ordinal = index.lookup(name);
+        if (ordinal >= 0) {
+            return ordinal;
+        }
+        if (index.size() >= MAX_DIMENSION_VALUES) {
+            return index.lookup(OTHER);
+        }
+        // Des enregistrements concurrents peuvent dépasser la limite de quelques valeurs: jamais utilisées
+        ordinal = index.intern(name);
+        return ordinal < MAX_DIMENSION_VALUES ? ordinal : index.lookup(OTHER);
+    }
+}
@@ -0,0 +1,114 @@
+package com.streaming.service;
+
+import com.streaming.model.VideoStats;
+import com.streaming.model.ViewEvent;
+import com.streaming.repository.EventRepository;
+import com.streaming.service.aggregation.Interner;
+import com.streaming.service.aggregation.RankedCounters;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moteur Top N incrémental: compteurs de vues et de durée par vidéo mis à jour à l'ingestion,
+ * reconstruits depuis MongoDB au démarrage. Remplace le scan complet de la collection à chaque appel.
+ */
+@ApplicationScoped
+public class TopVideosEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopVideosEngine.class);
+
+    @Inject
+    private EventRepository eventRepository;
+
+    private final Interner videoIndex = new Interner();
+    private final RankedCounters counters = new RankedCounters();
+    private volatile boolean ready = false;
+
+    /**
+     * Prendre en compte un événement persisté
+     */
+    public void record(ViewEvent event) {
+        counters.increment(videoIndex.intern(event.getVideoId()), event.getDuration());
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        for (ViewEvent event : events) {
+            record(event);
+        }
+    }
+
+    /**
+     * Reconstruire les compteurs à partir d'une agrégation $group côté MongoDB
+     *
+     * L'agrégation ne couvre que les événements écrits avant le démarrage: ceux persistés depuis sont
+     * déjà comptés à l'ingestion, même pendant la reconstruction.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<VideoStats> totals = eventRepository.aggregateVideoTotals();
+
+        int[] ordinals = new int[totals.size()];
+        long[] views = new long[totals.size()];
+        long[] watchTime = new long[totals.size()];
+        int n = 0;
+        for (VideoStats vs : totals) {
+            if (vs.getVideoId() == null) continue;
+            ordinals[n] = videoIndex.intern(vs.getVideoId());
+            views[n] = vs.getTotalViews();
+            watchTime[n] = vs.getTotalWatchTime();
+            n++;
+        }
+        counters.addAll(ordinals, views, watchTime, n);
+        ready = true;
+
+        logger.info("Top videos engine rebuilt: {} videos in {} ms", n, System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Top N des vidéos par nombre de vues, au même format que EventRepository.getTopVideos
+     */
+    public List<VideoStats> getTopVideos(int limit) {
+        int[] top = counters.top(limit);
+        List<VideoStats> videos = new ArrayList<>(top.length);
+        for (int ordinal : top) {
+            videos.add(toVideoStats(ordinal));
+        }
+        return videos;
+    }
+
+    /**
+     * Identifiants des N vidéos les plus vues
+     */
+    public List<String> getTopVideoIds(int limit) {
+        int[] top = counters.top(limit);
+        List<String> ids = new ArrayList<>(top.length);
+        for (int ordinal : top) {
+            ids.add(videoIndex.name(ordinal));
+        }
+        return ids;
+    }
+
+    private VideoStats toVideoStats(int ordinal) {
+        long views = counters.count(ordinal);
+        long watchTime = counters.sum(ordinal);
+
+        VideoStats vs = new VideoStats();
+        vs.setVideoId(videoIndex.name(ordinal));
+        vs.setTotalViews(views);
+        vs.setTotalWatchTime(watchTime);
+        vs.setAverageWatchTime(watchTime / Math.max(views, 1));
+        return vs;
+    }
+}
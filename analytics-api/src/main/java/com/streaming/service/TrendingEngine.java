@@ -0,0 +1,177 @@
+package com.streaming.service;
+
+import com.streaming.model.TrendingStats;
+import com.streaming.model.TrendingStats.VideoTrend;
+import com.streaming.service.RollingAggregates.Dimension;
+import com.streaming.service.aggregation.Timeframe;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tendances par vidéo et par catégorie calculées sur les tranches de {@link RollingAggregates}
+ *
+ * La fenêtre courante est comparée à la fenêtre précédente de même durée. Le score de tendance
+ * combine les vues de la fenêtre pondérées par une décroissance exponentielle (demi-vie = 1/4 de
+ * la fenêtre, les vues récentes comptent davantage) et le rapport courant / précédent lissé par
+ * un a priori, pour qu'une vidéo passant de 1 à 3 vues ne domine pas le classement.
+ * Aucun événement brut n'est relu: seuls les compteurs des tranches sont parcourus.
+ */
+@ApplicationScoped
+public class TrendingEngine {
+
+    private static final long HOUR = 3_600_000L;
+
+    private static final int TRENDING_VIDEOS = 10;
+    private static final int TRENDING_CATEGORIES = 5;
+    /** Vues ajoutées aux deux fenêtres avant de calculer le rapport de croissance */
+    private static final double GROWTH_PRIOR = 10.0;
+
+    @Inject
+    private RollingAggregates rollingAggregates;
+
+    public boolean isReady() {
+        return rollingAggregates.isReady();
+    }
+
+    /**
+     * Tendances de la fenêtre (hors ALL_TIME, qui n'a pas de fenêtre précédente)
+     */
+    public TrendingStats analyze(Timeframe timeframe) {
+        long now = System.currentTimeMillis();
+        long window = timeframe.getMillis();
+        long currentStart = now - window + 1;
+        long halfBucket = rollingAggregates.getBucketMillis(timeframe) / 2;
+        double decayRate = Math.log(2) / (window / 4.0);
+
+        Map<Long, Trend> videos = new HashMap<>();
+        Map<Long, Trend> categories = new HashMap<>();
+        Map<Long, Long> devices = new HashMap<>();
+        long[] viewsPerHour = new long[24];
+        ZoneId zone = ZoneId.systemDefault();
+        // Tranches jour (30d): l'heure de début ne dit rien de l'heure de visionnage
+        boolean hourlyBuckets = rollingAggregates.getBucketMillis(timeframe) <= HOUR;
+
+        rollingAggregates.forEachBucket(timeframe, currentStart - window, now, (bucketStart, counters) -> {
+            boolean current = bucketStart + halfBucket >= currentStart;
+            double weight = Math.exp(-decayRate * Math.max(0, now - bucketStart - halfBucket));
+            int hour = Instant.ofEpochMilli(bucketStart).atZone(zone).getHour();
+            counters.forEach((key, views, watchTime) -> {
+                long video = Dimension.VIDEO.extract(key);
+                long category = Dimension.CATEGORY.extract(key);
+                videos.computeIfAbsent(video, k -> new Trend()).add(current, views, weight);
+                categories.computeIfAbsent(category, k -> new Trend()).add(current, views, weight);
+                if (current) {
+                    devices.merge(Dimension.DEVICE.extract(key), views, Long::sum);
+                    if (hourlyBuckets) {
+                        viewsPerHour[hour] += views;
+                    }
+                }
+            });
+        });
+
+        if (!hourlyBuckets) {
+            // Heure de pointe tirée des tranches horaires des 7 derniers jours
+            rollingAggregates.forEachBucket(Timeframe.LAST_WEEK, now - Timeframe.LAST_WEEK.getMillis() + 1, now,
+                    (bucketStart, counters) -> {
+                        int hour = Instant.ofEpochMilli(bucketStart).atZone(zone).getHour();
+                        counters.forEach((key, views, watchTime) -> viewsPerHour[hour] += views);
+                    });
+        }
+
+        long totalCurrent = 0;
+        long totalPrevious = 0;
+        Map<String, Long> viewsPerCategory = new HashMap<>();
+        for (Map.Entry<Long, Trend> entry : categories.entrySet()) {
+            totalCurrent += entry.getValue().current;
+            totalPrevious += entry.getValue().previous;
+            if (entry.getValue().current > 0) {
+                viewsPerCategory.put(rollingAggregates.categoryName(entry.getKey()), entry.getValue().current);
+            }
+        }
+        Map<String, Long> viewsPerDevice = new HashMap<>();
+        devices.forEach((device, views) -> viewsPerDevice.put(rollingAggregates.deviceName(device), views));
+
+        TrendingStats trends = new TrendingStats();
+        trends.setTimeframe(timeframe.getCode());
+        trends.setTotalViewsInTimeframe(totalCurrent);
+        trends.setGrowthRate(totalPrevious > 0 ? (totalCurrent - totalPrevious) / (double) totalPrevious : 0);
+        trends.setViewsPerCategory(viewsPerCategory);
+        trends.setViewsPerDeviceType(viewsPerDevice);
+        trends.setPeakHour(peakHour(viewsPerHour));
+        trends.setTrendingVideos(topVideos(videos));
+        trends.setTrendingCategories(categories.entrySet().stream()
+                .filter(entry -> entry.getValue().current > 0)
+                .sorted(Comparator.comparingDouble((Map.Entry<Long, Trend> entry) -> entry.getValue().score()).reversed())
+                .limit(TRENDING_CATEGORIES)
+                .map(entry -> rollingAggregates.categoryName(entry.getKey()))
+                .collect(Collectors.toList()));
+        trends.setGeneratedAt(String.valueOf(now));
+        return trends;
+    }
+
+    private List<VideoTrend> topVideos(Map<Long, Trend> videos) {
+        List<Map.Entry<Long, Trend>> ranked = videos.entrySet().stream()
+                .filter(entry -> entry.getValue().current > 0)
+                .sorted(Comparator.comparingDouble((Map.Entry<Long, Trend> entry) -> entry.getValue().score()).reversed())
+                .limit(TRENDING_VIDEOS)
+                .collect(Collectors.toList());
+
+        List<VideoTrend> trending = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Trend> entry : ranked) {
+            Trend trend = entry.getValue();
+            VideoTrend videoTrend = new VideoTrend(rollingAggregates.videoName(entry.getKey()), null,
+                    trend.current, trend.score(), trending.size() + 1);
+            videoTrend.setGrowthPercentage(trend.growthPercentage());
+            trending.add(videoTrend);
+        }
+        return trending;
+    }
+
+    private static String peakHour(long[] viewsPerHour) {
+        int peak = 0;
+        for (int hour = 1; hour < viewsPerHour.length; hour++) {
+            if (viewsPerHour[hour] > viewsPerHour[peak]) {
+                peak = hour;
+            }
+        }
+        return viewsPerHour[peak] > 0 ? String.format("%02d:00", peak) : null;
+    }
+
+    /**
+     * Vues de la fenêtre courante et de la précédente pour une vidéo ou une catégorie
+     */
+    private static final class Trend {
+        long current;
+        long previous;
+        double decayed;
+
+        void add(boolean inCurrentWindow, long views, double weight) {
+            if (inCurrentWindow) {
+                current += views;
+                decayed += views * weight;
+            } else {
+                previous += views;
+            }
+        }
+
+        double score() {
+            return decayed * (current + GROWTH_PRIOR) / (previous + GROWTH_PRIOR);
+        }
+
+        double growthPercentage() {
+            if (previous == 0) {
+                return current > 0 ? 100.0 : 0.0;
+            }
+            return (current - previous) * 100.0 / previous;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.model.UserProfile;
+import com.streaming.model.ViewEvent;
+import com.streaming.repository.UserProfileRepository;
+import com.streaming.service.aggregation.EventTimestamps;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Profils de comportement par utilisateur tenus à jour à l'ingestion
+ *
+ * Les événements ne sont pas écrits un par un: les incréments de chaque utilisateur (temps de
+ * visionnage, vues, sessions, vues par appareil / catégorie / heure) sont regroupés en mémoire, puis
+ * écrits toutes les {@code USER_PROFILE_FLUSH_MS} (5 s) en un {@code bulkWrite} d'upserts {@code $inc}
+ * dans {@code user_profiles}. Une lecture est une recherche par userId, complétée des incréments
+ * pas encore écrits.
+ */
+@ApplicationScoped
+public class UserProfiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserProfiles.class);
+
+    /** Inactivité au-delà de laquelle un événement ouvre une nouvelle session */
+    private static final long SESSION_GAP_MILLIS = 30 * 60_000L;
+    private static final int MAX_TRACKED_SESSIONS = 200_000;
+    private static final int PREFERRED_CATEGORIES = 3;
+
+    @Inject
+    private UserProfileRepository userProfileRepository;
+
+    @Inject
+    private VideoCatalog videoCatalog;
+
+    private final long flushMillis = Settings.getLong("USER_PROFILE_FLUSH_MS", 5_000L);
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final Object lock = new Object();
+    private Map<String, Increment> pending = new HashMap<>();
+    /** Dernière activité connue par utilisateur, pour découper les sessions */
+    private final Map<String, Long> lastSeen = new LinkedHashMap<String, Long>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_TRACKED_SESSIONS;
+        }
+    };
+
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-profile-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flushSafely();
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (ViewEvent event : events) {
+                if (event.getUserId() == null) {
+                    continue;
+                }
+                long timestamp = EventTimestamps.toEpochMillis(event, now);
+                Long previous = lastSeen.get(event.getUserId());
+                boolean newSession = previous == null || timestamp - previous > SESSION_GAP_MILLIS;
+                if (previous == null || timestamp > previous) {
+                    lastSeen.put(event.getUserId(), timestamp);
+                }
+                pending.computeIfAbsent(event.getUserId(), id -> new Increment())
+                        .add(event, timestamp, newSession, videoCatalog.category(event.getVideoId()), zone);
+            }
+        }
+    }
+
+    /**
+     * Écrire les incréments en attente; ceux qui échouent sont remis en attente pour l'écriture suivante
+     */
+    public void flush() {
+        Map<String, Increment> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        List<String> userIds = new ArrayList<>(batch.keySet());
+        List<UserProfile> increments = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            increments.add(batch.get(userId).toProfile(userId));
+        }
+
+        Set<String> failed = new HashSet<>();
+        try {
+            for (int index : userProfileRepository.incrementAll(increments)) {
+                failed.add(userIds.get(index));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to flush {} user profiles, will retry: {}", userIds.size(), e.getMessage());
+            failed.addAll(userIds);
+        }
+        if (!failed.isEmpty()) {
+            synchronized (lock) {
+                for (String userId : failed) {
+                    pending.merge(userId, batch.get(userId), Increment::plus);
+                }
+            }
+        }
+    }
+
+    /**
+     * Profil d'un utilisateur (compteurs écrits + incréments en attente), null s'il est inconnu
+     */
+    public UserProfile getProfile(String userId) {
+        UserProfile profile = userProfileRepository.findByUserId(userId);
+        Increment unflushed;
+        synchronized (lock) {
+            Increment increment = pending.get(userId);
+            unflushed = increment != null ? new Increment().plus(increment) : null;
+        }
+        if (unflushed != null) {
+            profile = unflushed.addTo(profile != null ? profile : emptyProfile(userId));
+        }
+        if (profile != null) {
+            profile.setFavoriteDevice(argMax(profile.getDeviceViews()));
+            profile.setPreferredCategories(String.join(",", topCategories(profile)));
+        }
+        return profile;
+    }
+
+    /**
+     * Catégories les plus regardées, de la plus vue à la moins vue
+     */
+    public List<String> topCategories(UserProfile profile) {
+        return profile.getCategoryViews().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(PREFERRED_CATEGORIES)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("User profile flush failed", e);
+        }
+    }
+
+    private static UserProfile emptyProfile(String userId) {
+        UserProfile profile = new UserProfile();
+        profile.setUserId(userId);
+        return profile;
+    }
+
+    private static String argMax(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    /**
+     * Incréments d'un utilisateur depuis la dernière écriture
+     */
+    private static final class Increment {
+        long watchTime;
+        long views;
+        long sessions;
+        long lastActivity;
+        final Map<String, Long> devices = new HashMap<>(4);
+        final Map<String, Long> categories = new HashMap<>(4);
+        final long[] hours = new long[24];
+
+        void add(ViewEvent event, long timestamp, boolean newSession, String category, ZoneId zone) {
+            watchTime += Math.max(0, event.getDuration());
+            views++;
+            if (newSession) {
+                sessions++;
+            }
+            lastActivity = Math.max(lastActivity, timestamp);
+            if (event.getDeviceType() != null) {
+                devices.merge(event.getDeviceType(), 1L, Long::sum);
+            }
+            if (category != null) {
+                categories.merge(category, 1L, Long::sum);
+            }
+            hours[Instant.ofEpochMilli(timestamp).atZone(zone).getHour()]++;
+        }
+
+        Increment plus(Increment other) {
+            watchTime += other.watchTime;
+            views += other.views;
+            sessions += other.sessions;
+            lastActivity = Math.max(lastActivity, other.lastActivity);
+            other.devices.forEach((device, count) -> devices.merge(device, count, Long::sum));
+            other.categories.forEach((category, count) -> categories.merge(category, count, Long::sum));
+            for (int hour = 0; hour < hours.length; hour++) {
+                hours[hour] += other.hours[hour];
+            }
+            return this;
+        }
+
+        UserProfile toProfile(String userId) {
+            return addTo(emptyProfile(userId));
+        }
+
+        UserProfile addTo(UserProfile profile) {
+            profile.setTotalWatchTime((int) (profile.getTotalWatchTime() + watchTime));
+            profile.setVideosWatched((int) (profile.getVideosWatched() + views));
+            profile.setSessions((int) (profile.getSessions() + sessions));
+            devices.forEach((device, count) -> profile.getDeviceViews().merge(device, count, Long::sum));
+            categories.forEach((category, count) -> profile.getCategoryViews().merge(category, count, Long::sum));
+            for (int hour = 0; hour < hours.length; hour++) {
+                profile.getHourlyViews()[hour] += hours[hour];
+            }
+            if (lastActivity > 0) {
+                long stored = profile.getLastActivity() != null ? Instant.parse(profile.getLastActivity()).toEpochMilli() : 0;
+                profile.setLastActivity(Instant.ofEpochMilli(Math.max(stored, lastActivity)).toString());
+            }
+            return profile;
+        }
+    }
+}
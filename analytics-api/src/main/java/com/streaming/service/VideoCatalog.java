@@ -0,0 +1,158 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.model.Video;
+import com.streaming.repository.VideoRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalogue en mémoire des métadonnées vidéo (titre, catégorie, durée), jointure O(1) par videoId
+ *
+ * Chargé depuis la collection {@code videos}, puis rafraîchi toutes les
+ * {@code VIDEO_CATALOG_REFRESH_MS} (1 min) en ne lisant que les documents d'_id supérieur au dernier
+ * chargé; un rechargement complet toutes les {@code VIDEO_CATALOG_FULL_RELOAD_MS} (1 h) prend en
+ * compte les modifications de vidéos existantes. Les requêtes ne lisent jamais MongoDB.
+ */
+@ApplicationScoped
+public class VideoCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoCatalog.class);
+
+    @Inject
+    private VideoRepository videoRepository;
+
+    private final long refreshMillis = Settings.getLong("VIDEO_CATALOG_REFRESH_MS", 60_000L);
+    private final long fullReloadMillis = Settings.getLong("VIDEO_CATALOG_FULL_RELOAD_MS", 60 * 60_000L);
+
+    private final Map<String, Video> videos = new ConcurrentHashMap<>();
+    /** videoIds par catégorie, remplacé en bloc à chaque chargement */
+    private volatile Map<String, Set<String>> videoIdsByCategory = Collections.emptyMap();
+
+    private Object lastId;
+    private long lastFullReload;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean ready = false;
+
+    /**
+     * Chargement complet synchrone, puis rafraîchissement planifié
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        refresh();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "video-catalog-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Charger les vidéos ajoutées depuis le dernier chargement (ou tout le catalogue si le
+     * rechargement complet est dû)
+     */
+    public synchronized void refresh() {
+        long start = System.currentTimeMillis();
+        boolean full = start - lastFullReload >= fullReloadMillis;
+        Object[] last = {full ? null : lastId};
+        int[] loaded = {0};
+        Set<String> seen = new HashSet<>();
+
+        videoRepository.forEachVideoAfter(last[0], (id, video) -> {
+            if (video.getVideoId() != null) {
+                videos.put(video.getVideoId(), video);
+                seen.add(video.getVideoId());
+                loaded[0]++;
+            }
+            last[0] = id;
+        });
+        lastId = last[0];
+        if (full) {
+            // Vidéos supprimées de la collection depuis le dernier rechargement complet
+            videos.keySet().retainAll(seen);
+            lastFullReload = start;
+        }
+        if (full || loaded[0] > 0) {
+            indexCategories();
+        }
+        ready = true;
+
+        if (full || loaded[0] > 0) {
+            logger.info("Video catalog {}: {} videos loaded, {} in catalog in {} ms",
+                    full ? "reloaded" : "refreshed", loaded[0], videos.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return videos.size();
+    }
+
+    /**
+     * Métadonnées d'une vidéo, null si elle n'est pas au catalogue
+     */
+    public Video get(String videoId) {
+        return videoId != null ? videos.get(videoId) : null;
+    }
+
+    /**
+     * Catégorie d'une vidéo, null si elle n'est pas au catalogue
+     */
+    public String category(String videoId) {
+        Video video = get(videoId);
+        return video != null ? video.getCategory() : null;
+    }
+
+    /**
+     * Identifiants des vidéos d'une catégorie (ensemble vide si la catégorie est inconnue)
+     */
+    public Set<String> videoIdsInCategory(String category) {
+        Set<String> ids = videoIdsByCategory.get(category);
+        return ids != null ? ids : Collections.emptySet();
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("Failed to refresh video catalog", e);
+        }
+    }
+
+    private void indexCategories() {
+        Map<String, Set<String>> index = new HashMap<>();
+        for (Video video : videos.values()) {
+            if (video.getCategory() != null) {
+                index.computeIfAbsent(video.getCategory(), c -> new HashSet<>()).add(video.getVideoId());
+            }
+        }
+        index.replaceAll((category, ids) -> Collections.unmodifiableSet(ids));
+        videoIdsByCategory = index;
+    }
+}
@@ -0,0 +1,215 @@
+package com.streaming.service;
+
+import com.streaming.config.Settings;
+import com.streaming.model.VideoStats;
+import com.streaming.model.ViewEvent;
+import com.streaming.repository.EventRepository;
+import com.streaming.repository.VideoStatsRepository;
+import com.streaming.service.aggregation.EventTimestamps;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totaux par vidéo (vues, temps de visionnage) tenus à jour à l'ingestion dans {@code video_stats}
+ *
+ * Écriture différée: les incréments de chaque vidéo sont regroupés en mémoire, puis écrits toutes les
+ * {@code VIDEO_STATS_FLUSH_MS} (5 s) en un {@code bulkWrite} d'upserts {@code $inc}; une vidéo très
+ * regardée coûte une écriture par intervalle quel que soit son nombre de vues. Une lecture est une
+ * recherche par videoId, complétée des incréments pas encore écrits. Une collection vide au démarrage
+ * est initialisée depuis les événements écrits avant le démarrage ($group + $merge) avant la première
+ * écriture; les événements persistés depuis sont dans les incréments en attente.
+ */
+@ApplicationScoped
+public class VideoStatsAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStatsAggregator.class);
+
+    @Inject
+    private VideoStatsRepository videoStatsRepository;
+
+    @Inject
+    private EventRepository eventRepository;
+
+    private final long flushMillis = Settings.getLong("VIDEO_STATS_FLUSH_MS", 5_000L);
+
+    private final Object lock = new Object();
+    private Map<String, Increment> pending = new HashMap<>();
+
+    /** Les écritures attendent l'initialisation de la collection, qui additionne ses totaux aux compteurs existants */
+    private volatile boolean backfilled = false;
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "video-stats-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flushSafely();
+    }
+
+    /**
+     * Initialiser {@code video_stats} depuis l'historique si la collection est vide, puis autoriser les écritures
+     *
+     * L'agrégation ne lit que les événements écrits avant le démarrage (même borne _id que les
+     * reconstructions des agrégats): ceux enregistrés dans {@code pending} depuis le démarrage, y compris
+     * pendant la migration des horodatages et la déduplication qui précèdent, ne sont comptés qu'une fois.
+     */
+    public void backfill() {
+        try {
+            if (videoStatsRepository.isEmpty()) {
+                long start = System.currentTimeMillis();
+                eventRepository.mergeVideoTotalsInto(VideoStatsRepository.COLLECTION);
+                logger.info("Video stats backfilled from events in {} ms", System.currentTimeMillis() - start);
+            }
+        } finally {
+            backfilled = true;
+        }
+    }
+
+    /**
+     * Prendre en compte un lot d'événements persistés
+     */
+    public void recordAll(List<ViewEvent> events) {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (ViewEvent event : events) {
+                if (event.getVideoId() == null) {
+                    continue;
+                }
+                pending.computeIfAbsent(event.getVideoId(), id -> new Increment())
+                        .add(Math.max(0, event.getDuration()), EventTimestamps.toEpochMillis(event, now));
+            }
+        }
+    }
+
+    /**
+     * Écrire les incréments en attente; ceux qui échouent sont remis en attente pour l'écriture suivante
+     */
+    public void flush() {
+        if (!backfilled) {
+            return;
+        }
+        Map<String, Increment> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+
+        List<String> videoIds = new ArrayList<>(batch.keySet());
+        List<VideoStats> increments = new ArrayList<>(videoIds.size());
+        for (String videoId : videoIds) {
+            increments.add(batch.get(videoId).addTo(emptyStats(videoId)));
+        }
+
+        Set<String> failed = new HashSet<>();
+        try {
+            for (int index : videoStatsRepository.incrementAll(increments)) {
+                failed.add(videoIds.get(index));
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to flush stats of {} videos, will retry: {}", videoIds.size(), e.getMessage());
+            failed.addAll(videoIds);
+        }
+        if (!failed.isEmpty()) {
+            synchronized (lock) {
+                for (String videoId : failed) {
+                    pending.merge(videoId, batch.get(videoId), Increment::plus);
+                }
+            }
+        }
+    }
+
+    /**
+     * Totaux d'une vidéo (compteurs écrits + incréments en attente), null si elle n'a aucune vue
+     */
+    public VideoStats getStats(String videoId) {
+        VideoStats stats = videoStatsRepository.findByVideoId(videoId);
+        Increment unflushed;
+        synchronized (lock) {
+            Increment increment = pending.get(videoId);
+            unflushed = increment != null ? new Increment().plus(increment) : null;
+        }
+        if (unflushed != null) {
+            stats = unflushed.addTo(stats != null ? stats : emptyStats(videoId));
+        }
+        if (stats == null || stats.getTotalViews() == 0) {
+            return null;
+        }
+        stats.setAverageWatchTime((double) stats.getTotalWatchTime() / stats.getTotalViews());
+        return stats;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Video stats flush failed", e);
+        }
+    }
+
+    private static VideoStats emptyStats(String videoId) {
+        VideoStats stats = new VideoStats();
+        stats.setVideoId(videoId);
+        return stats;
+    }
+
+    /**
+     * Incréments d'une vidéo depuis la dernière écriture
+     */
+    private static final class Increment {
+        long views;
+        long watchTime;
+        long lastEvent;
+
+        void add(long duration, long timestamp) {
+            views++;
+            watchTime += duration;
+            lastEvent = Math.max(lastEvent, timestamp);
+        }
+
+        Increment plus(Increment other) {
+            views += other.views;
+            watchTime += other.watchTime;
+            lastEvent = Math.max(lastEvent, other.lastEvent);
+            return this;
+        }
+
+        VideoStats addTo(VideoStats stats) {
+            stats.setTotalViews(stats.getTotalViews() + views);
+            stats.setTotalWatchTime(stats.getTotalWatchTime() + watchTime);
+            if (lastEvent > 0) {
+                long stored = stats.getLastUpdated() != null ? Instant.parse(stats.getLastUpdated()).toEpochMilli() : 0;
+                stats.setLastUpdated(Instant.ofEpochMilli(Math.max(stored, lastEvent)).toString());
+            }
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.streaming.service;
+
+import com.streaming.model.ViewEvent;
+import com.streaming.repository.EventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * File d'écriture différée (write-behind) pour l'ingestion unitaire.
+ *
+ * Les requêtes HTTP publient dans un anneau MPSC borné et reviennent immédiatement; un thread
+ * unique regroupe les événements et les écrit par {@code insertMany} non ordonné dès que le lot
+ * atteint {@code batchSize} ou que le plus ancien attend depuis {@code maxDelayMs} (group commit).
+ * Sans événement en attente, le thread dort jusqu'à ce qu'une publication le réveille; avec un lot
+ * incomplet, jusqu'à l'échéance de son plus ancien événement ou la publication qui complète le lot.
+ */
+class WriteBehindQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MpscRing<ViewEvent> ring;
+    private final EventRepository eventRepository;
+    private final Consumer<List<ViewEvent>> onPersisted;
+    private final Consumer<List<ViewEvent>> onFlushed;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread flusher;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private volatile boolean running = true;
+    /**
+     * Le thread d'écriture dort: une publication qui porte l'anneau à ce nombre d'événements doit le
+     * réveiller (1 sans lot en cours, le complément du lot sinon); {@link Integer#MAX_VALUE} s'il est actif
+     */
+    private volatile int wakeThreshold = Integer.MAX_VALUE;
+    /** Publications en cours: le thread d'écriture ne s'arrête qu'une fois toutes terminées */
+    private final AtomicInteger offering = new AtomicInteger();
+
+    /**
+     * @param onPersisted événements écrits d'un lot
+     * @param onFlushed   tous les événements d'un lot, écrits ou non, une fois {@code onPersisted} appelé
+     */
+    WriteBehindQueue(EventRepository eventRepository, Consumer<List<ViewEvent>> onPersisted,
+                     Consumer<List<ViewEvent>> onFlushed, int capacity, int batchSize, long maxDelayMs) {
+        this.ring = new MpscRing<>(capacity);
+        this.eventRepository = eventRepository;
+        this.onPersisted = onPersisted;
+        this.onFlushed = onFlushed;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.flusher = new Thread(this::runFlusher, "event-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Publier un événement validé
+     *
+     * @return false si la file est pleine (contre-pression) ou arrêtée
+     */
+    boolean offer(ViewEvent event) {
+        offering.incrementAndGet();
+        try {
+            if (!running || !ring.offer(event)) {
+                rejected.incrementAndGet();
+                return false;
+            }
+        } finally {
+            offering.decrementAndGet();
+        }
+        accepted.incrementAndGet();
+        if (ring.size() >= wakeThreshold) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    /**
+     * Arrêter la file après avoir écrit tous les événements en attente
+     */
+    void shutdown(long timeoutMs) {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("Write-behind queue did not drain within {} ms, {} events left", timeoutMs, ring.size());
+        }
+    }
+
+    int depth() { return ring.size(); }
+    int capacity() { return ring.capacity(); }
+    long getAcceptedCount() { return accepted.get(); }
+    long getRejectedCount() { return rejected.get(); }
+    long getPersistedCount() { return persisted.get(); }
+    long getFailedCount() { return failed.get(); }
+    long getDuplicateCount() { return duplicates.get(); }
+
+    private void runFlusher() {
+        List<ViewEvent> pending = new ArrayList<>(batchSize);
+        long oldestPendingAt = 0;
+
+        // Après l'arrêt, une publication déjà passée par le test de running est attendue puis écrite
+        while (running || offering.get() > 0 || ring.size() > 0) {
+            boolean wasEmpty = pending.isEmpty();
+            int drained = ring.drainTo(pending, batchSize - pending.size());
+            if (wasEmpty && drained > 0) {
+                oldestPendingAt = System.nanoTime();
+            }
+
+            boolean full = pending.size() >= batchSize;
+            boolean expired = !pending.isEmpty() && System.nanoTime() - oldestPendingAt >= maxDelayNanos;
+            if (full || expired || (!running && !pending.isEmpty())) {
+                flush(pending);
+                pending = new ArrayList<>(batchSize);
+            } else if (drained == 0) {
+                // Seuil publié avant de relire l'anneau: une publication concurrente voit le seuil ou est vue ici
+                if (pending.isEmpty()) {
+                    wakeThreshold = 1;
+                    if (running && ring.size() == 0) {
+                        LockSupport.park(this);
+                    }
+                } else {
+                    int missing = batchSize - pending.size();
+                    wakeThreshold = missing;
+                    if (ring.size() < missing) {
+                        LockSupport.parkNanos(this, oldestPendingAt + maxDelayNanos - System.nanoTime());
+                    }
+                }
+                wakeThreshold = Integer.MAX_VALUE;
+            }
+        }
+        if (!pending.isEmpty()) {
+            flush(pending);
+        }
+        logger.info("Write-behind queue drained: {} events persisted, {} failed", persisted.get(), failed.get());
+    }
+
+    private void flush(List<ViewEvent> batch) {
+        try {
+            write(batch);
+        } finally {
+            try {
+                onFlushed.accept(batch);
+            } catch (Exception e) {
+                logger.error("Failed to release a flushed batch", e);
+            }
+        }
+    }
+
+    private void write(List<ViewEvent> batch) {
+        EventRepository.UnorderedInsert insert = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS && insert == null; attempt++) {
+            try {
+                insert = eventRepository.saveBatchUnordered(batch);
+            } catch (Exception e) {
+                logger.warn("Write-behind flush of {} events failed (attempt {}/{})", batch.size(), attempt, MAX_ATTEMPTS, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L * attempt));
+            }
+        }
+        if (insert == null) {
+            failed.addAndGet(batch.size());
+            logger.error("Dropping {} events after {} failed flush attempts", batch.size(), MAX_ATTEMPTS);
+            return;
+        }
+
+        List<ViewEvent> written = batch;
+        if (!insert.isComplete()) {
+            // Un doublon d'un eventId déjà stocké n'est pas un échec: l'événement est déjà compté
+            Set<Integer> rejectedIndexes = new HashSet<>(insert.getFailed());
+            rejectedIndexes.addAll(insert.getDuplicates());
+            written = new ArrayList<>(batch.size() - rejectedIndexes.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (!rejectedIndexes.contains(i)) {
+                    written.add(batch.get(i));
+                }
+            }
+            duplicates.addAndGet(insert.getDuplicates().size());
+            failed.addAndGet(insert.getFailed().size());
+            if (!insert.getFailed().isEmpty()) {
+                logger.warn("{} events rejected by MongoDB in a batch of {}", insert.getFailed().size(), batch.size());
+            }
+        }
+        persisted.addAndGet(written.size());
+
+        try {
+            onPersisted.accept(written);
+        } catch (Exception e) {
+            logger.error("Failed to update aggregates after flush", e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Anneau générique de structures par tranche de temps, avec les règles de {@link TimeBuckets}:
+ * événements trop anciens ignorés, événements futurs ramenés à {@code now}, tranche réinitialisée
+ * lorsqu'elle est réutilisée. Une structure n'est allouée qu'à la première écriture de sa tranche.
+ * Toutes les lectures et écritures des structures passent par l'anneau, qui les sérialise.
+ */
+public class BucketRing<T> {
+
+    /**
+     * Callback de parcours d'une tranche
+     */
+    public interface BucketVisitor<T> {
+        void accept(long bucketStartMillis, T bucket);
+    }
+
+    private final long bucketMillis;
+    private final Object[] buckets;
+    private final long[] bucketIndexes;
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+
+    public BucketRing(long bucketMillis, int bucketCount, Supplier<T> factory, Consumer<T> reset) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new Object[bucketCount];
+        this.bucketIndexes = new long[bucketCount];
+        this.factory = factory;
+        this.reset = reset;
+        Arrays.fill(bucketIndexes, Long.MIN_VALUE);
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Durée totale couverte par l'anneau
+     */
+    public long getRetentionMillis() {
+        return bucketMillis * buckets.length;
+    }
+
+    /**
+     * Applique {@code update} à la structure de la tranche de {@code timestampMillis}
+     *
+     * @return false si l'événement est trop ancien pour cette fenêtre
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized boolean update(long timestampMillis, long now, Consumer<T> update) {
+        long nowIndex = Math.floorDiv(now, bucketMillis);
+        long index = Math.min(Math.floorDiv(timestampMillis, bucketMillis), nowIndex);
+        if (index <= nowIndex - buckets.length) {
+            return false;
+        }
+        int slot = (int) Math.floorMod(index, (long) buckets.length);
+        if (bucketIndexes[slot] != index) {
+            if (buckets[slot] == null) {
+                buckets[slot] = factory.get();
+            } else {
+                reset.accept((T) buckets[slot]);
+            }
+            bucketIndexes[slot] = index;
+        }
+        update.accept((T) buckets[slot]);
+        return true;
+    }
+
+    /**
+     * Parcourt les tranches dont le début est dans [fromMillis, now], de la plus ancienne à la plus récente
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void forEachBucket(long fromMillis, long now, BucketVisitor<T> visitor) {
+        long nowIndex = Math.floorDiv(now, bucketMillis);
+        long fromIndex = Math.max(Math.floorDiv(fromMillis, bucketMillis), nowIndex - buckets.length + 1);
+        for (long index = fromIndex; index <= nowIndex; index++) {
+            int slot = (int) Math.floorMod(index, (long) buckets.length);
+            if (bucketIndexes[slot] == index) {
+                visitor.accept(index * bucketMillis, (T) buckets[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Sketch Count-Min: estimation de fréquence en mémoire fixe ({@code depth × width} compteurs).
+ *
+ * L'estimation ne sous-estime jamais; elle surestime d'au plus e/width × total avec une
+ * probabilité 1 - e^-depth. Deux sketches de mêmes dimensions se fusionnent par addition.
+ * Les {@code depth} positions d'un élément sont dérivées de son hachage 64 bits (double hachage).
+ * Non thread-safe.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long[] counters;
+    private long total;
+
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.counters = new long[depth * width];
+    }
+
+    public void add(long hash, long count) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + Math.floorMod(h1 + row * h2, width)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * Fréquence estimée (borne supérieure)
+     */
+    public long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row * width + Math.floorMod(h1 + row * h2, width)]);
+        }
+        return min;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge Count-Min sketches of different dimensions");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Somme de tous les ajouts
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public void clear() {
+        Arrays.fill(counters, 0);
+        total = 0;
+    }
+}
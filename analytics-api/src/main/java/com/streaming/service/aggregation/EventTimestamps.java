@@ -0,0 +1,199 @@
+package com.streaming.service.aggregation;
+
+import com.streaming.model.ViewEvent;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Conversion des horodatages d'événements (ISO-8601 ou epoch millis) en millisecondes
+ *
+ * Les deux formats reçus à l'ingestion sont lus caractère par caractère, sans allocation:
+ * des chiffres seuls (epoch millis) ou {@code yyyy-MM-ddTHH:mm[:ss[.fraction]][Z|±HH[:]mm]}
+ * (sans fuseau: UTC). Les autres écritures ISO-8601 passent par {@code java.time}.
+ */
+public final class EventTimestamps {
+
+    /** Valeur retournée par {@link #parse} pour un horodatage illisible */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private EventTimestamps() {}
+
+    /**
+     * Retourne l'horodatage en epoch millis, ou {@code fallback} s'il est absent ou illisible
+     */
+    public static long toEpochMillis(String timestamp, long fallback) {
+        if (timestamp == null || timestamp.isEmpty()) {
+            return fallback;
+        }
+        long millis = parse(timestamp);
+        return millis != INVALID ? millis : fallback;
+    }
+
+    /**
+     * Horodatage d'un événement: la valeur lue à l'ingestion ou au chargement, sinon le texte reçu
+     */
+    public static long toEpochMillis(ViewEvent event, long fallback) {
+        long millis = event.getTimestampMillis();
+        return millis != 0 ? millis : toEpochMillis(event.getTimestamp(), fallback);
+    }
+
+    /**
+     * Epoch millis de {@code text}, ou {@link #INVALID}
+     */
+    public static long parse(CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return INVALID;
+        }
+        if (isDigits(text, 0, length)) {
+            return length <= 18 ? digits(text, 0, length) : INVALID;
+        }
+        long millis = parseIso(text, length);
+        return millis != INVALID ? millis : parseSlow(text.toString());
+    }
+
+    private static long parseIso(CharSequence text, int length) {
+        if (length < 16 || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(13) != ':'
+                || (text.charAt(10) != 'T' && text.charAt(10) != 't' && text.charAt(10) != ' ')
+                || !isDigits(text, 0, 4) || !isDigits(text, 5, 7) || !isDigits(text, 8, 10)
+                || !isDigits(text, 11, 13) || !isDigits(text, 14, 16)) {
+            return INVALID;
+        }
+        int year = (int) digits(text, 0, 4);
+        int month = (int) digits(text, 5, 7);
+        int day = (int) digits(text, 8, 10);
+        int hour = (int) digits(text, 11, 13);
+        int minute = (int) digits(text, 14, 16);
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour > 23 || minute > 59) {
+            return INVALID;
+        }
+
+        int position = 16;
+        int second = 0;
+        int millisOfSecond = 0;
+        if (position < length && text.charAt(position) == ':') {
+            if (position + 3 > length || !isDigits(text, position + 1, position + 3)) {
+                return INVALID;
+            }
+            second = (int) digits(text, position + 1, position + 3);
+            if (second > 59) {
+                return INVALID;
+            }
+            position += 3;
+            if (position < length && (text.charAt(position) == '.' || text.charAt(position) == ',')) {
+                position++;
+                int start = position;
+                while (position < length && isDigit(text.charAt(position))) {
+                    // Au-delà de la milliseconde, les chiffres sont tronqués comme le fait Instant.toEpochMilli
+                    if (position - start < 3) {
+                        millisOfSecond = millisOfSecond * 10 + (text.charAt(position) - '0');
+                    }
+                    position++;
+                }
+                int fractionDigits = position - start;
+                if (fractionDigits == 0) {
+                    return INVALID;
+                }
+                for (int i = fractionDigits; i < 3; i++) {
+                    millisOfSecond *= 10;
+                }
+            }
+        }
+
+        int offsetSeconds = 0;
+        if (position < length) {
+            char zone = text.charAt(position);
+            if (zone == 'Z' || zone == 'z') {
+                position++;
+            } else if (zone == '+' || zone == '-') {
+                int hoursEnd = position + 3;
+                if (hoursEnd > length || !isDigits(text, position + 1, hoursEnd)) {
+                    return INVALID;
+                }
+                int minutesStart = hoursEnd < length && text.charAt(hoursEnd) == ':' ? hoursEnd + 1 : hoursEnd;
+                if (minutesStart + 2 > length || !isDigits(text, minutesStart, minutesStart + 2)) {
+                    return INVALID;
+                }
+                int offsetHours = (int) digits(text, position + 1, hoursEnd);
+                int offsetMinutes = (int) digits(text, minutesStart, minutesStart + 2);
+                if (offsetHours > 18 || offsetMinutes > 59) {
+                    return INVALID;
+                }
+                offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (zone == '-' ? -1 : 1);
+                position = minutesStart + 2;
+            }
+            if (position != length) {
+                return INVALID;
+            }
+        }
+
+        long seconds = hour * 3600L + minute * 60L + second - offsetSeconds;
+        return epochDay(year, month, day) * MILLIS_PER_DAY + seconds * 1000L + millisOfSecond;
+    }
+
+    /**
+     * Écritures ISO-8601 moins courantes (fraction seule, années étendues...)
+     */
+    private static long parseSlow(String text) {
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                return INVALID;
+            }
+        }
+    }
+
+    /**
+     * Jours depuis le 1970-01-01 du calendrier grégorien proleptique
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isDigits(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static long digits(CharSequence text, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (text.charAt(i) - '0');
+        }
+        return value;
+    }
+}
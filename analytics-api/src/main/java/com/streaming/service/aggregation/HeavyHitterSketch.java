@@ -0,0 +1,149 @@
+package com.streaming.service.aggregation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Éléments les plus fréquents d'un flux en mémoire fixe: Space-Saving guidé par un Count-Min.
+ *
+ * Space-Saving suit au plus {@code capacity} éléments candidats; quand un nouvel élément arrive
+ * alors que le résumé est plein, il remplace le moins fréquent. Son compteur de départ est le
+ * minimum entre « plus grand compteur évincé + 1 » et l'estimation Count-Min, deux bornes
+ * supérieures de sa vraie fréquence: la seconde évite qu'un élément rare hérite d'un compteur
+ * élevé. La première remplace le « plus petit compteur + 1 » de Space-Saving, qui n'est plus une
+ * borne dès qu'un élément plafonné par le Count-Min entre sous le compteur qu'il remplace.
+ * Les candidats restent triés par compteur décroissant (échange avec le premier du bloc
+ * de compteurs égaux, comme {@link RankedCounters}). Non thread-safe.
+ */
+public class HeavyHitterSketch {
+
+    /**
+     * Callback de parcours des candidats
+     */
+    public interface CandidateVisitor {
+        void accept(String item, long hash, long count);
+    }
+
+    private final CountMinSketch frequencies;
+    private final String[] items;
+    private final long[] hashes;
+    private final long[] counts;
+    private final Map<String, Integer> positions;
+    private int size;
+    /** Plus grand compteur d'un élément évincé: majore la fréquence de tout élément non suivi */
+    private long evictedBound;
+
+    public HeavyHitterSketch(int capacity, int depth, int width) {
+        this.frequencies = new CountMinSketch(depth, width);
+        this.items = new String[capacity];
+        this.hashes = new long[capacity];
+        this.counts = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Enregistre une occurrence de l'élément
+     */
+    public void add(String item, long hash) {
+        frequencies.add(hash, 1);
+        Integer position = positions.get(item);
+        if (position != null) {
+            increment(position);
+        } else if (size < items.length) {
+            // Résumé pas encore plein: aucun élément n'a été évincé, le compteur est exact
+            place(size, item, hash, 1);
+            size++;
+        } else {
+            int last = size - 1;
+            positions.remove(items[last]);
+            evictedBound = Math.max(evictedBound, counts[last]);
+            long count = Math.min(evictedBound + 1, frequencies.estimate(hash));
+            // Insertion à son rang: décalage d'une position des candidats de compteur inférieur
+            int rank = firstPositionWithCountAtMost(count - 1, last);
+            for (int i = last; i > rank; i--) {
+                place(i, items[i - 1], hashes[i - 1], counts[i - 1]);
+            }
+            place(rank, item, hash, count);
+        }
+    }
+
+    /**
+     * Parcourt les candidats, du plus fréquent au moins fréquent
+     */
+    public void forEachCandidate(CandidateVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.accept(items[i], hashes[i], counts[i]);
+        }
+    }
+
+    /**
+     * Borne supérieure de la fréquence d'un élément absent des candidats: le plus grand compteur évincé
+     * (0 sans éviction). Le plus petit compteur ne suffit pas: un nouvel élément plafonné par le
+     * Count-Min peut entrer sous le compteur de l'élément qu'il remplace.
+     */
+    public long getUntrackedBound() {
+        return evictedBound;
+    }
+
+    /**
+     * Estimateur de fréquence de tous les éléments du flux, candidats ou non
+     */
+    public CountMinSketch getFrequencies() {
+        return frequencies;
+    }
+
+    public void clear() {
+        frequencies.clear();
+        positions.clear();
+        for (int i = 0; i < size; i++) {
+            items[i] = null;
+        }
+        size = 0;
+        evictedBound = 0;
+    }
+
+    private void place(int position, String item, long hash, long count) {
+        items[position] = item;
+        hashes[position] = hash;
+        counts[position] = count;
+        positions.put(item, position);
+    }
+
+    private void increment(int position) {
+        long count = counts[position];
+        int first = firstPositionWithCountAtMost(count, position);
+        swap(first, position);
+        counts[first] = count + 1;
+    }
+
+    private int firstPositionWithCountAtMost(long count, int upperBound) {
+        int low = 0;
+        int high = upperBound;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (counts[mid] <= count) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) {
+            return;
+        }
+        String item = items[i];
+        long hash = hashes[i];
+        long count = counts[i];
+        items[i] = items[j];
+        hashes[i] = hashes[j];
+        counts[i] = counts[j];
+        items[j] = item;
+        hashes[j] = hash;
+        counts[j] = count;
+        positions.put(items[i], i);
+        positions.put(items[j], j);
+    }
+}
@@ -0,0 +1,111 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Sketch HyperLogLog pour le comptage approximatif d'éléments distincts (utilisateurs, spectateurs).
+ *
+ * {@code 2^precision} registres d'un octet; erreur standard relative ≈ 1,04 / √(2^precision):
+ * précision 10 → 1 Ko, ±3,25 %; précision 14 → 16 Ko, ±0,81 %. Les petites cardinalités sont
+ * corrigées par comptage linéaire. Deux sketches de même précision se fusionnent sans perte
+ * (maximum registre par registre), et ajouter deux fois le même élément ne change rien.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Hachage 64 bits d'un identifiant (FNV-1a puis mélange final de MurmurHash3)
+     */
+    public static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Ajoute un élément à partir de son hachage 64 bits
+     */
+    public synchronized void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Fusionne un autre sketch de même précision dans celui-ci (union des ensembles)
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+        }
+        byte[] source;
+        synchronized (other) {
+            source = other.registers.clone();
+        }
+        synchronized (this) {
+            for (int i = 0; i < registers.length; i++) {
+                if (source[i] > registers[i]) {
+                    registers[i] = source[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Cardinalité estimée
+     */
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * (double) m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16: return 0.673;
+            case 32: return 0.697;
+            case 64: return 0.709;
+            default: return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
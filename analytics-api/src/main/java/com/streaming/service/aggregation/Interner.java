@@ -0,0 +1,55 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attribue un ordinal entier dense et stable à chaque identifiant (videoId, userId...)
+ * afin que les agrégats puissent être stockés dans des tableaux primitifs indexés
+ */
+public class Interner {
+
+    private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private int size;
+
+    /**
+     * Retourne l'ordinal de l'identifiant, en l'enregistrant s'il est inconnu
+     */
+    public int intern(String name) {
+        Integer ordinal = ordinals.get(name);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (this) {
+            ordinal = ordinals.get(name);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int next = size;
+            if (next == names.length) {
+                names = Arrays.copyOf(names, next * 2);
+            }
+            names[next] = name;
+            size = next + 1;
+            ordinals.put(name, next);
+            return next;
+        }
+    }
+
+    /**
+     * Retourne l'ordinal de l'identifiant, ou -1 s'il n'a jamais été vu
+     */
+    public int lookup(String name) {
+        Integer ordinal = ordinals.get(name);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public String name(int ordinal) {
+        return names[ordinal];
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+}
@@ -0,0 +1,118 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Table de hachage à adressage ouvert clé {@code long} → (vues, durée cumulée), sans boxing.
+ * Les clés doivent être positives ou nulles (-1 marque un emplacement libre). Non thread-safe.
+ */
+public class LongKeyCounters {
+
+    private static final long EMPTY = -1L;
+
+    /**
+     * Callback de parcours des entrées
+     */
+    public interface Visitor {
+        void accept(long key, long views, long watchTime);
+    }
+
+    private long[] keys;
+    private long[] views;
+    private long[] watchTime;
+    private int size;
+    private int mask;
+
+    public LongKeyCounters() {
+        this(64);
+    }
+
+    public LongKeyCounters(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    public void add(long key, long viewsDelta, long watchTimeDelta) {
+        int slot = slotFor(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+            if (size * 10 > keys.length * 6) {
+                views[slot] += viewsDelta;
+                watchTime[slot] += watchTimeDelta;
+                rehash(keys.length << 1);
+                return;
+            }
+        }
+        views[slot] += viewsDelta;
+        watchTime[slot] += watchTimeDelta;
+    }
+
+    public long views(long key) {
+        int slot = slotFor(key);
+        return keys[slot] == EMPTY ? 0 : views[slot];
+    }
+
+    public long watchTime(long key) {
+        int slot = slotFor(key);
+        return keys[slot] == EMPTY ? 0 : watchTime[slot];
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.accept(keys[i], views[i], watchTime[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(views, 0);
+        Arrays.fill(watchTime, 0);
+        size = 0;
+    }
+
+    private int slotFor(long key) {
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldViews = views;
+        long[] oldWatchTime = watchTime;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                views[slot] = oldViews[i];
+                watchTime[slot] = oldWatchTime[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        views = new long[capacity];
+        watchTime = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+}
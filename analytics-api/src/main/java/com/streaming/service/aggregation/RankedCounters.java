@@ -0,0 +1,124 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Compteurs par ordinal (vues + somme de durée) maintenus triés par nombre de vues décroissant.
+ *
+ * Le tableau {@code rank} reste trié en permanence : un incrément de +1 échange simplement
+ * l'élément avec le premier de son bloc de compteurs égaux (recherche dichotomique), ce qui
+ * rend la lecture du Top N proportionnelle à N et indépendante du volume d'événements.
+ */
+public class RankedCounters {
+
+    private long[] counts = new long[1024];
+    private long[] sums = new long[1024];
+    private int[] rank = new int[1024];
+    private int[] position = new int[1024];
+    private int size;
+
+    /**
+     * Enregistre une occurrence pour l'ordinal et ajoute {@code sumDelta} à sa somme
+     */
+    public synchronized void increment(int ordinal, long sumDelta) {
+        ensureSize(ordinal + 1);
+        int current = position[ordinal];
+        long count = counts[ordinal];
+        int first = firstPositionWithCountAtMost(count, current);
+        swap(first, current);
+        counts[ordinal] = count + 1;
+        sums[ordinal] += sumDelta;
+    }
+
+    /**
+     * Ajoute des totaux en masse (reconstruction), puis retrie le classement
+     */
+    public synchronized void addAll(int[] ordinals, long[] countDeltas, long[] sumDeltas, int length) {
+        for (int i = 0; i < length; i++) {
+            int ordinal = ordinals[i];
+            ensureSize(ordinal + 1);
+            counts[ordinal] += countDeltas[i];
+            sums[ordinal] += sumDeltas[i];
+        }
+        resort();
+    }
+
+    /**
+     * Retourne les ordinaux des {@code limit} premiers (vues > 0), dans l'ordre du classement
+     */
+    public synchronized int[] top(int limit) {
+        int n = Math.min(limit, size);
+        int taken = 0;
+        while (taken < n && counts[rank[taken]] > 0) {
+            taken++;
+        }
+        return Arrays.copyOf(rank, taken);
+    }
+
+    public synchronized long count(int ordinal) {
+        return ordinal < size ? counts[ordinal] : 0;
+    }
+
+    public synchronized long sum(int ordinal) {
+        return ordinal < size ? sums[ordinal] : 0;
+    }
+
+    private void ensureSize(int required) {
+        if (required <= size) {
+            return;
+        }
+        if (required > counts.length) {
+            int capacity = Math.max(required, counts.length * 2);
+            counts = Arrays.copyOf(counts, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            position = Arrays.copyOf(position, capacity);
+        }
+        // Les nouveaux ordinaux ont 0 vue : les placer en fin de classement le garde trié
+        for (int ordinal = size; ordinal < required; ordinal++) {
+            rank[ordinal] = ordinal;
+            position[ordinal] = ordinal;
+        }
+        size = required;
+    }
+
+    private int firstPositionWithCountAtMost(long count, int upperBound) {
+        int low = 0;
+        int high = upperBound;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (counts[rank[mid]] <= count) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) {
+            return;
+        }
+        int a = rank[i];
+        int b = rank[j];
+        rank[i] = b;
+        rank[j] = a;
+        position[b] = i;
+        position[a] = j;
+    }
+
+    private void resort() {
+        final long[] snapshot = counts;
+        int[] sorted = IntStream.range(0, size)
+                .boxed()
+                .sorted((a, b) -> Long.compare(snapshot[b], snapshot[a]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int i = 0; i < sorted.length; i++) {
+            rank[i] = sorted[i];
+            position[sorted[i]] = i;
+        }
+    }
+}
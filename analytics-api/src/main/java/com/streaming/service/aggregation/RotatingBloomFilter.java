@@ -0,0 +1,79 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Filtre de Bloom tournant: appartenance approximative aux {@code capacity} à {@code 2 × capacity}
+ * derniers éléments ajoutés, en mémoire fixe.
+ *
+ * Deux générations de {@code m = -capacity × ln(p) / ln(2)²} bits; quand la génération courante a
+ * reçu {@code capacity} éléments, elle devient la précédente et la plus ancienne est vidée.
+ * Pas de faux négatif pour les éléments encore dans la fenêtre; faux positifs avec une probabilité
+ * d'au plus ≈ 2p. Les {@code k} positions d'un élément sont dérivées de son hachage 64 bits
+ * (double hachage).
+ */
+public class RotatingBloomFilter {
+
+    private final int capacity;
+    private final int hashes;
+    private final long bits;
+
+    private long[] current;
+    private long[] previous;
+    private int currentCount;
+
+    public RotatingBloomFilter(int capacity, double falsePositiveRate) {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("capacity must be positive and falsePositiveRate in ]0, 1[");
+        }
+        this.capacity = capacity;
+        long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = Math.max(64, (m + 63) & ~63L);
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.current = new long[(int) (bits >>> 6)];
+        this.previous = new long[current.length];
+    }
+
+    /**
+     * true si l'élément a peut-être été ajouté dans la fenêtre, false s'il ne l'a certainement pas été
+     */
+    public synchronized boolean mightContain(long hash) {
+        return contains(current, hash) || contains(previous, hash);
+    }
+
+    public synchronized void add(long hash) {
+        if (currentCount >= capacity) {
+            long[] cleared = previous;
+            Arrays.fill(cleared, 0);
+            previous = current;
+            current = cleared;
+            currentCount = 0;
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            current[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        currentCount++;
+    }
+
+    /**
+     * Mémoire occupée par les deux générations, en octets
+     */
+    public long sizeInBytes() {
+        return 2 * (bits >>> 3);
+    }
+
+    private boolean contains(long[] generation, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            if ((generation[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
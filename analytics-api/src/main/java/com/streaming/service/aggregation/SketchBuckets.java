@@ -0,0 +1,43 @@
+package com.streaming.service.aggregation;
+
+/**
+ * Anneau de sketches HyperLogLog par tranche de temps.
+ *
+ * Les éléments distincts d'une fenêtre s'obtiennent en fusionnant les sketches des tranches
+ * concernées; un sketch n'est alloué que pour les tranches qui ont reçu au moins un élément.
+ */
+public class SketchBuckets {
+
+    private final int precision;
+    private final BucketRing<HyperLogLog> ring;
+
+    public SketchBuckets(long bucketMillis, int bucketCount, int precision) {
+        this.precision = precision;
+        this.ring = new BucketRing<>(bucketMillis, bucketCount, () -> new HyperLogLog(precision), HyperLogLog::clear);
+    }
+
+    /**
+     * Durée totale couverte par l'anneau
+     */
+    public long getRetentionMillis() {
+        return ring.getRetentionMillis();
+    }
+
+    /**
+     * Ajoute un élément dans la tranche de {@code timestampMillis}, avec les mêmes règles que {@link TimeBuckets#add}
+     *
+     * @return false si l'élément est trop ancien pour cette fenêtre
+     */
+    public boolean add(long timestampMillis, long now, long hash) {
+        return ring.update(timestampMillis, now, sketch -> sketch.add(hash));
+    }
+
+    /**
+     * Union des tranches dont le début est dans [fromMillis, now]
+     */
+    public HyperLogLog union(long fromMillis, long now) {
+        HyperLogLog union = new HyperLogLog(precision);
+        ring.forEachBucket(fromMillis, now, (bucketStart, sketch) -> union.merge(sketch));
+        return union;
+    }
+}
@@ -0,0 +1,91 @@
+package com.streaming.service.aggregation;
+
+/**
+ * Anneau de compteurs par tranche de temps (minute, heure, jour...).
+ *
+ * Chaque tranche contient ses propres compteurs par clé composite. Les tranches sorties de la
+ * fenêtre sont vidées et réutilisées, la mémoire reste donc bornée par {@code bucketCount} tranches
+ * quel que soit l'historique ingéré.
+ */
+public class TimeBuckets {
+
+    /**
+     * Callback de parcours d'une tranche
+     */
+    public interface BucketVisitor {
+        void accept(long bucketStartMillis, LongKeyCounters counters);
+    }
+
+    private final long bucketMillis;
+    private final LongKeyCounters[] buckets;
+    private final long[] bucketIndexes;
+
+    public TimeBuckets(long bucketMillis, int bucketCount) {
+        this.bucketMillis = bucketMillis;
+        this.buckets = new LongKeyCounters[bucketCount];
+        this.bucketIndexes = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new LongKeyCounters();
+            bucketIndexes[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Durée totale couverte par l'anneau
+     */
+    public long getRetentionMillis() {
+        return bucketMillis * buckets.length;
+    }
+
+    /**
+     * Ajoute des compteurs dans la tranche de {@code timestampMillis}.
+     * Les événements antérieurs à la fenêtre sont ignorés, ceux datés dans le futur sont ramenés à {@code now}.
+     *
+     * @return false si l'événement est trop ancien pour cette fenêtre
+     */
+    public synchronized boolean add(long timestampMillis, long now, long key, long views, long watchTime) {
+        long nowIndex = Math.floorDiv(now, bucketMillis);
+        long index = Math.min(Math.floorDiv(timestampMillis, bucketMillis), nowIndex);
+        if (index <= nowIndex - buckets.length) {
+            return false;
+        }
+        int slot = (int) Math.floorMod(index, (long) buckets.length);
+        if (bucketIndexes[slot] != index) {
+            buckets[slot].clear();
+            bucketIndexes[slot] = index;
+        }
+        buckets[slot].add(key, views, watchTime);
+        return true;
+    }
+
+    /**
+     * Parcourt les tranches dont le début est dans [fromMillis, now], de la plus ancienne à la plus récente
+     */
+    public synchronized void forEachBucket(long fromMillis, long now, BucketVisitor visitor) {
+        long nowIndex = Math.floorDiv(now, bucketMillis);
+        long fromIndex = Math.max(Math.floorDiv(fromMillis, bucketMillis), nowIndex - buckets.length + 1);
+        for (long index = fromIndex; index <= nowIndex; index++) {
+            int slot = (int) Math.floorMod(index, (long) buckets.length);
+            if (bucketIndexes[slot] == index) {
+                visitor.accept(index * bucketMillis, buckets[slot]);
+            }
+        }
+    }
+
+    /**
+     * Vide les tranches sorties de la fenêtre afin de libérer leurs compteurs
+     */
+    public synchronized void evict(long now) {
+        long oldestIndex = Math.floorDiv(now, bucketMillis) - buckets.length + 1;
+        for (int slot = 0; slot < buckets.length; slot++) {
+            if (bucketIndexes[slot] != Long.MIN_VALUE && bucketIndexes[slot] < oldestIndex) {
+                buckets[slot] = new LongKeyCounters();
+                bucketIndexes[slot] = Long.MIN_VALUE;
+            }
+        }
+    }
+}
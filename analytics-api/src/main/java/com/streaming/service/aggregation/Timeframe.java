@@ -0,0 +1,39 @@
+package com.streaming.service.aggregation;
+
+/**
+ * Fenêtres temporelles acceptées par le paramètre {@code timeframe} de l'API
+ */
+public enum Timeframe {
+
+    LAST_HOUR("1h", 3_600_000L),
+    LAST_DAY("24h", 86_400_000L),
+    LAST_WEEK("7d", 604_800_000L),
+    LAST_MONTH("30d", 2_592_000_000L),
+    ALL_TIME("all", Long.MAX_VALUE);
+
+    private final String code;
+    private final long millis;
+
+    Timeframe(String code, long millis) {
+        this.code = code;
+        this.millis = millis;
+    }
+
+    public String getCode() { return code; }
+
+    public long getMillis() { return millis; }
+
+    /**
+     * Interpréter le paramètre de l'API (24h par défaut si inconnu)
+     */
+    public static Timeframe parse(String value) {
+        if (value != null) {
+            for (Timeframe timeframe : values()) {
+                if (timeframe.code.equalsIgnoreCase(value.trim())) {
+                    return timeframe;
+                }
+            }
+        }
+        return LAST_DAY;
+    }
+}
@@ -0,0 +1,79 @@
+package com.streaming.service.aggregation;
+
+import java.util.Arrays;
+
+/**
+ * Voisins les plus fréquents d'un élément (ordinal → nombre de co-occurrences), en capacité fixe.
+ *
+ * Quand la liste est pleine, un nouveau voisin remplace le moins fréquent et hérite de son compteur
+ * + 1 (règle Space-Saving): les voisins fréquents restent suivis, seuls les compteurs de fin de
+ * liste peuvent être surestimés. Capacité faible (quelques dizaines), recherche linéaire.
+ */
+public class TopNeighbours {
+
+    /**
+     * Callback de parcours des voisins
+     */
+    public interface NeighbourVisitor {
+        void accept(int ordinal, long count);
+    }
+
+    private final int[] ordinals;
+    private final long[] counts;
+    private int size;
+
+    public TopNeighbours(int capacity) {
+        this.ordinals = new int[capacity];
+        this.counts = new long[capacity];
+    }
+
+    /**
+     * Enregistre une co-occurrence avec {@code ordinal}
+     */
+    public synchronized void add(int ordinal) {
+        int minimum = 0;
+        for (int i = 0; i < size; i++) {
+            if (ordinals[i] == ordinal) {
+                counts[i]++;
+                return;
+            }
+            if (counts[i] < counts[minimum]) {
+                minimum = i;
+            }
+        }
+        if (size < ordinals.length) {
+            ordinals[size] = ordinal;
+            counts[size] = 1;
+            size++;
+        } else {
+            ordinals[minimum] = ordinal;
+            counts[minimum]++;
+        }
+    }
+
+    /**
+     * Parcourt les {@code limit} voisins les plus fréquents, du plus fréquent au moins fréquent
+     */
+    public void forEachTop(int limit, NeighbourVisitor visitor) {
+        int[] topOrdinals;
+        long[] topCounts;
+        int n;
+        synchronized (this) {
+            n = size;
+            topOrdinals = Arrays.copyOf(ordinals, n);
+            topCounts = Arrays.copyOf(counts, n);
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(topCounts[b], topCounts[a]));
+        for (int i = 0; i < Math.min(limit, n); i++) {
+            visitor.accept(topOrdinals[order[i]], topCounts[order[i]]);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,260 @@
+package com.streaming.tools;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.streaming.config.MongoSettings;
+import com.streaming.config.Settings;
+import com.streaming.repository.EventRepository;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Command-line tool for the time-series event storage mode (EVENTS_STORAGE=timeseries)
+ *
+ * <pre>
+ * java -cp "analytics-api/target/analytics-api/WEB-INF/classes:analytics-api/target/analytics-api/WEB-INF/lib/*" \
+ *     com.streaming.tools.EventStorageTool migrate
+ * java -cp ... com.streaming.tools.EventStorageTool benchmark
+ * </pre>
+ *
+ * {@code migrate} copies viewevents into viewevents_ts: the timestamp range is split into
+ * MIGRATION_PARALLELISM x 4 chunks copied concurrently, each chunk being one range scan of the
+ * timestamp index written back with unordered insertMany batches. {@code benchmark} prints the
+ * storage size of both collections and the median latency of the same time-window queries on each.
+ * Connection settings are the MONGODB_* variables of the webapp.
+ */
+public class EventStorageTool {
+
+    private static final int INSERT_BATCH = 1_000;
+    private static final long HOUR = 3_600_000L;
+
+    private final MongoCollection<Document> source;
+    private final MongoCollection<Document> target;
+
+    EventStorageTool(MongoDatabase database) {
+        this.source = database.getCollection(EventRepository.COLLECTION);
+        EventRepository.createTimeSeriesCollection(database);
+        this.target = database.getCollection(EventRepository.TIMESERIES_COLLECTION);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 0 ? args[0] : "";
+        if (!command.equals("migrate") && !command.equals("benchmark")) {
+            System.err.println("Usage: EventStorageTool migrate [--append] | benchmark");
+            System.exit(2);
+        }
+        boolean ok = true;
+        try (MongoClient client = MongoClients.create(MongoSettings.clientSettings("event-storage-tool").build())) {
+            EventStorageTool tool = new EventStorageTool(
+                    client.getDatabase(Settings.get("MONGODB_DATABASE", "streaming_analytics")));
+            if (command.equals("migrate")) {
+                ok = tool.migrate(Settings.getInt("MIGRATION_PARALLELISM", Runtime.getRuntime().availableProcessors()),
+                        Arrays.asList(args).contains("--append"));
+            } else {
+                tool.benchmark(Settings.getInt("BENCHMARK_RUNS", 5));
+            }
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    // ==================== Migration ====================
+
+    /**
+     * Copy every event of the regular collection into the time-series collection
+     * @param append Copy even if the target already holds events (a rerun would duplicate them)
+     * @return true if every event was copied
+     */
+    boolean migrate(int parallelism, boolean append) throws Exception {
+        if (!append && target.find().limit(1).first() != null) {
+            System.err.println(EventRepository.TIMESERIES_COLLECTION + " is not empty, rerun with --append to copy anyway");
+            return false;
+        }
+        Date first = boundary(1);
+        Date last = boundary(-1);
+        long sourceCount = source.countDocuments();
+        long start = System.currentTimeMillis();
+        AtomicLong copied = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+
+        List<Bson> chunks = new ArrayList<>();
+        if (first != null) {
+            int chunkCount = Math.max(1, parallelism * 4);
+            long from = first.getTime();
+            long to = last.getTime() + 1;
+            long step = Math.max(1, (to - from + chunkCount - 1) / chunkCount);
+            for (long chunkStart = from; chunkStart < to; chunkStart += step) {
+                chunks.add(Filters.and(Filters.gte("timestamp", new Date(chunkStart)),
+                        Filters.lt("timestamp", new Date(Math.min(chunkStart + step, to)))));
+            }
+        }
+        // Events whose timestamp is not a date yet (string timestamps not migrated)
+        chunks.add(Filters.not(Filters.type("timestamp", "date")));
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                Bson chunk = chunks.get(i);
+                int number = i + 1;
+                results.add(workers.submit(() -> {
+                    long chunkCopied = copyChunk(chunk, skipped);
+                    copied.addAndGet(chunkCopied);
+                    System.out.printf("chunk %d/%d: %,d events%n", number, chunks.size(), chunkCopied);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        System.out.printf("Copied %,d of %,d events (%,d without a readable timestamp skipped) in %,d ms (%,d events/s)%n",
+                copied.get(), sourceCount, skipped.get(), elapsed, copied.get() * 1000 / elapsed);
+        return copied.get() + skipped.get() == sourceCount && skipped.get() == 0;
+    }
+
+    private long copyChunk(Bson filter, AtomicLong skipped) {
+        long copied = 0;
+        List<Document> batch = new ArrayList<>(INSERT_BATCH);
+        for (Document event : source.find(filter).batchSize(5_000)) {
+            Document doc = EventRepository.toTimeSeriesDocument(event);
+            if (doc == null) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            batch.add(doc);
+            if (batch.size() == INSERT_BATCH) {
+                copied += insert(batch);
+                batch = new ArrayList<>(INSERT_BATCH);
+            }
+        }
+        if (!batch.isEmpty()) {
+            copied += insert(batch);
+        }
+        return copied;
+    }
+
+    private int insert(List<Document> batch) {
+        try {
+            target.insertMany(batch, new InsertManyOptions().ordered(false));
+            return batch.size();
+        } catch (MongoBulkWriteException e) {
+            return batch.size() - e.getWriteErrors().size();
+        }
+    }
+
+    /**
+     * Oldest (1) or newest (-1) date timestamp, read from the timestamp index
+     */
+    private Date boundary(int order) {
+        Document doc = source.find(Filters.type("timestamp", "date"))
+                .sort(new Document("timestamp", order))
+                .projection(new Document("timestamp", 1))
+                .first();
+        return doc != null ? doc.getDate("timestamp") : null;
+    }
+
+    // ==================== Benchmark ====================
+
+    /**
+     * Print storage sizes, then the median latency of each time-window query on both collections
+     */
+    void benchmark(int runs) {
+        System.out.printf("%-16s %14s %14s %14s %14s%n", "collection", "events", "data bytes", "storage bytes", "index bytes");
+        printStorage(source);
+        printStorage(target);
+
+        Date newest = boundary(-1);
+        long now = newest != null ? newest.getTime() : System.currentTimeMillis();
+        String topVideo = topVideo(now - 24 * HOUR);
+
+        System.out.printf("%nmedian of %d runs, windows ending at %s%n", runs, new Date(now));
+        System.out.printf("%-36s %12s %12s%n", "query", "standard ms", "time-series ms");
+        for (long hours : new long[]{1, 24, 7 * 24, 30 * 24}) {
+            long from = now - hours * HOUR;
+            compare(runs, "count, last " + hours + "h", collection -> collection.countDocuments(window(from, now)));
+            compare(runs, "top 10 videos, last " + hours + "h", collection -> collection.aggregate(Arrays.asList(
+                    new Document("$match", window(from, now)),
+                    new Document("$group", new Document("_id", "$" + videoIdPath(collection))
+                            .append("views", new Document("$sum", 1))),
+                    new Document("$sort", new Document("views", -1)),
+                    new Document("$limit", 10))).allowDiskUse(true).into(new ArrayList<>()).size());
+            if (topVideo != null) {
+                compare(runs, "one video, last " + hours + "h", collection -> collection.countDocuments(
+                        Filters.and(Filters.eq(videoIdPath(collection), topVideo), window(from, now))));
+            }
+        }
+    }
+
+    private void compare(int runs, String name, Function<MongoCollection<Document>, Object> query) {
+        System.out.printf("%-36s %12.1f %12.1f%n", name, median(runs, query, source), median(runs, query, target));
+    }
+
+    /**
+     * Median latency of {@code runs} executions, after one warm-up execution
+     */
+    private double median(int runs, Function<MongoCollection<Document>, Object> query, MongoCollection<Document> collection) {
+        query.apply(collection);
+        double[] millis = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            query.apply(collection);
+            millis[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[runs / 2];
+    }
+
+    private void printStorage(MongoCollection<Document> collection) {
+        Document stats = collection.aggregate(List.of(
+                new Document("$collStats", new Document("storageStats", new Document())))).first();
+        Document storage = stats != null ? stats.get("storageStats", Document.class) : null;
+        if (storage == null) {
+            System.out.printf("%-16s (no storage statistics)%n", collection.getNamespace().getCollectionName());
+            return;
+        }
+        System.out.printf("%-16s %,14d %,14d %,14d %,14d%n", collection.getNamespace().getCollectionName(),
+                collection.countDocuments(), number(storage, "size"), number(storage, "storageSize"),
+                number(storage, "totalIndexSize"));
+    }
+
+    private String topVideo(long from) {
+        Document top = source.aggregate(Arrays.asList(
+                new Document("$match", Filters.gte("timestamp", new Date(from))),
+                new Document("$group", new Document("_id", "$videoId").append("views", new Document("$sum", 1))),
+                new Document("$sort", new Document("views", -1)),
+                new Document("$limit", 1))).first();
+        return top != null ? top.getString("_id") : null;
+    }
+
+    private String videoIdPath(MongoCollection<Document> collection) {
+        return collection == target ? EventRepository.META + ".videoId" : "videoId";
+    }
+
+    private static Bson window(long from, long to) {
+        return Filters.and(Filters.gte("timestamp", new Date(from)), Filters.lte("timestamp", new Date(to)));
+    }
+
+    private static long number(Document doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+}
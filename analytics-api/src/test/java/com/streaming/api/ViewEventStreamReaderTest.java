@@ -0,0 +1,158 @@
+package com.streaming.api;
+
+import com.streaming.model.ViewEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewEventStreamReaderTest {
+
+    @Test
+    void readsEveryField() throws IOException {
+        List<ViewEvent> events = readAll("[{\"eventId\":\"e1\",\"userId\":\"u1\",\"videoId\":\"v1\","
+                + "\"timestamp\":\"2024-03-10T14:30:00Z\",\"action\":\"WATCH\",\"duration\":120,"
+                + "\"quality\":\"1080p\",\"deviceType\":\"mobile\"}]", null);
+
+        assertEquals(1, events.size());
+        ViewEvent event = events.get(0);
+        assertEquals("e1", event.getEventId());
+        assertEquals("u1", event.getUserId());
+        assertEquals("v1", event.getVideoId());
+        assertEquals("2024-03-10T14:30:00Z", event.getTimestamp());
+        assertEquals("WATCH", event.getAction());
+        assertEquals(120, event.getDuration());
+        assertEquals("1080p", event.getQuality());
+        assertEquals("mobile", event.getDeviceType());
+    }
+
+    @Test
+    void readsEventsOneByOne() throws IOException {
+        try (ViewEventStreamReader reader = reader("[{\"eventId\":\"e1\"},{\"eventId\":\"e2\"},{\"eventId\":\"e3\"}]")) {
+            assertEquals("e1", reader.next().getEventId());
+            assertEquals("e2", reader.next().getEventId());
+            assertEquals("e3", reader.next().getEventId());
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, reader::next);
+            assertNull(reader.getError());
+        }
+    }
+
+    @Test
+    void rejectsUnknownFieldsLikeTheBatchEndpoint() throws IOException {
+        List<String> error = new ArrayList<>();
+        List<ViewEvent> events = readAll("[{\"eventId\":\"e1\"},{\"eventId\":\"e2\",\"extra\":{\"a\":[1,2]}}]", error);
+
+        assertEquals(1, events.size());
+        assertTrue(error.get(0).startsWith("Invalid event after 1 events"), error.get(0));
+        assertTrue(error.get(0).contains("extra"), error.get(0));
+    }
+
+    @Test
+    void keepsNumericTimestampDigits() throws IOException {
+        List<ViewEvent> events = readAll("[{\"timestamp\":1710081000123}]", null);
+
+        assertEquals("1710081000123", events.get(0).getTimestamp());
+    }
+
+    @Test
+    void bindsDurationsLikeJackson() throws IOException {
+        List<ViewEvent> events = readAll("[{\"duration\":null},{\"duration\":\"42\"}]", null);
+
+        assertEquals(0, events.get(0).getDuration());
+        assertEquals(42, events.get(1).getDuration());
+    }
+
+    @Test
+    void rejectsDurationsThatAreNotNumbers() throws IOException {
+        for (String duration : new String[] {"\"abc\"", "{\"seconds\":5}", "[5]"}) {
+            List<String> error = new ArrayList<>();
+            List<ViewEvent> events = readAll("[{\"eventId\":\"e1\"},{\"duration\":" + duration + "}]", error);
+
+            assertEquals(1, events.size(), duration);
+            assertTrue(error.get(0).startsWith("Invalid event after 1 events"), error.get(0));
+        }
+    }
+
+    @Test
+    void readsNullElementsAsNullEvents() throws IOException {
+        List<ViewEvent> events = readAll("[{\"eventId\":\"e1\"},null,{\"eventId\":\"e2\"}]", null);
+
+        assertEquals(3, events.size());
+        assertEquals("e1", events.get(0).getEventId());
+        assertNull(events.get(1));
+        assertEquals("e2", events.get(2).getEventId());
+    }
+
+    @Test
+    void readsEmptyBodiesAsNoEvents() throws IOException {
+        assertTrue(readAll("", null).isEmpty());
+        assertTrue(readAll("[]", null).isEmpty());
+    }
+
+    @Test
+    void stopsAtMalformedJsonAndKeepsEventsRead() throws IOException {
+        List<String> error = new ArrayList<>();
+        List<ViewEvent> events = readAll("[{\"eventId\":\"e1\"},{\"eventId\":\"e2\"},{\"eventId\":", error);
+
+        assertEquals(2, events.size());
+        assertEquals(1, error.size());
+        assertTrue(error.get(0).startsWith("Malformed JSON after 2 events"), error.get(0));
+    }
+
+    @Test
+    void rejectsBodiesThatAreNotArrays() throws IOException {
+        List<String> error = new ArrayList<>();
+        assertTrue(readAll("{\"eventId\":\"e1\"}", error).isEmpty());
+        assertTrue(error.get(0).contains("expected an array of events"), error.get(0));
+
+        error.clear();
+        List<ViewEvent> events = readAll("[{\"eventId\":\"e1\"},42]", error);
+        assertEquals(1, events.size());
+        assertNotNull(error.get(0));
+    }
+
+    @Test
+    void rejectsContentAfterTheArray() throws IOException {
+        List<String> error = new ArrayList<>();
+        List<ViewEvent> events = readAll("[{\"eventId\":\"e1\"}] {\"eventId\":\"e2\"}", error);
+
+        assertEquals(1, events.size());
+        assertTrue(error.get(0).contains("unexpected content after the array"), error.get(0));
+    }
+
+    private static ViewEventStreamReader reader(String json) throws IOException {
+        return new ViewEventStreamReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * All events of the body; the reader error, if any, is added to {@code error} (null when none is expected)
+     */
+    private static List<ViewEvent> readAll(String json, List<String> error) throws IOException {
+        List<ViewEvent> events = new ArrayList<>();
+        try (ViewEventStreamReader reader = reader(json)) {
+            while (reader.hasNext()) {
+                events.add(reader.next());
+            }
+            if (error != null) {
+                if (reader.getError() != null) {
+                    error.add(reader.getError());
+                }
+            } else {
+                assertNull(reader.getError());
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,122 @@
+package com.streaming.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscRingTest {
+
+    @Test
+    void roundsTheCapacityUpToAPowerOfTwo() {
+        assertEquals(4, new MpscRing<Integer>(1).capacity());
+        assertEquals(4, new MpscRing<Integer>(4).capacity());
+        assertEquals(8, new MpscRing<Integer>(8).capacity());
+        assertEquals(16, new MpscRing<Integer>(9).capacity());
+        assertEquals(1024, new MpscRing<Integer>(1000).capacity());
+    }
+
+    @Test
+    void rejectsOffersWhenFullUntilDrained() {
+        MpscRing<Integer> ring = new MpscRing<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(1, ring.drainTo(drained, 1));
+        assertTrue(ring.offer(4));
+        assertFalse(ring.offer(5));
+    }
+
+    @Test
+    void drainsInPublicationOrderAcrossLaps() {
+        MpscRing<Integer> ring = new MpscRing<>(4);
+        List<Integer> drained = new ArrayList<>();
+        // Plusieurs tours de l'anneau: les séquences des emplacements doivent suivre
+        for (int lap = 0; lap < 10; lap++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(ring.offer(lap * 3 + i));
+            }
+            assertEquals(3, ring.drainTo(drained, 10));
+        }
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i, drained.get(i));
+        }
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drainTo(drained, 10));
+    }
+
+    @Test
+    void drainsAtMostTheRequestedCount() {
+        MpscRing<Integer> ring = new MpscRing<>(8);
+        for (int i = 0; i < 6; i++) {
+            ring.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(4, ring.drainTo(drained, 4));
+        assertEquals(2, ring.size());
+        assertEquals(2, ring.drainTo(drained, 4));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), drained);
+    }
+
+    @Test
+    void deliversEveryElementOnceWithConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        MpscRing<Long> ring = new MpscRing<>(256);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    // Anneau plein: le producteur réessaie, comme un client qui reçoit la contre-pression
+                    while (!ring.offer(producer * perProducer + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        long[] lastPerProducer = new long[producers];
+        Arrays.fill(lastPerProducer, -1);
+        int received = 0;
+        List<Long> batch = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            batch.clear();
+            ring.drainTo(batch, 64);
+            for (long value : batch) {
+                int producer = (int) (value / perProducer);
+                long index = value % perProducer;
+                // Ordre FIFO par producteur, sans perte ni doublon
+                assertEquals(lastPerProducer[producer] + 1, index);
+                lastPerProducer[producer] = index;
+                received++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(producers * perProducer, received);
+        assertEquals(0, ring.size());
+    }
+}
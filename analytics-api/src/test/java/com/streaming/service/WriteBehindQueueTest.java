@@ -0,0 +1,288 @@
+package com.streaming.service;
+
+import com.streaming.model.ViewEvent;
+import com.streaming.repository.EventRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+
+    private static final long WAIT_MILLIS = 5_000;
+
+    @Test
+    void flushesAFullBatchWithoutWaitingForTheDelay() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 64, 4, 60_000);
+        try {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(queue.offer(event("e" + i)));
+            }
+            assertTrue(flushes.awaitFlushed(4));
+            assertEquals(List.of(4), repository.batchSizes());
+            assertEquals(4, queue.getPersistedCount());
+        } finally {
+            queue.shutdown(WAIT_MILLIS);
+        }
+    }
+
+    @Test
+    void flushesAnIncompleteBatchOnceItsOldestEventExpires() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 64, 100, 50);
+        try {
+            long start = System.nanoTime();
+            queue.offer(event("e1"));
+            queue.offer(event("e2"));
+            assertTrue(flushes.awaitFlushed(2));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(List.of(2), repository.batchSizes());
+        } finally {
+            queue.shutdown(WAIT_MILLIS);
+        }
+    }
+
+    @Test
+    void wakesTheIdleFlusherOnEveryOffer() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 64, 1, 60_000);
+        try {
+            // Le thread d'écriture se rendort entre deux publications: chacune doit le réveiller
+            for (int i = 0; i < 200; i++) {
+                assertTrue(queue.offer(event("e" + i)));
+                assertTrue(flushes.awaitFlushed(i + 1), "event " + i + " not flushed");
+                if (i % 50 == 0) {
+                    Thread.sleep(5);
+                }
+            }
+        } finally {
+            queue.shutdown(WAIT_MILLIS);
+        }
+    }
+
+    @Test
+    void appliesBackPressureWhenTheRingIsFull() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        repository.blockWrites();
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 4, 1, 60_000);
+        try {
+            assertTrue(queue.offer(event("blocked")));
+            assertTrue(repository.awaitBlockedWrite());
+            for (int i = 0; i < queue.capacity(); i++) {
+                assertTrue(queue.offer(event("e" + i)));
+            }
+            assertFalse(queue.offer(event("rejected")));
+            assertEquals(1, queue.getRejectedCount());
+        } finally {
+            repository.releaseWrites();
+            queue.shutdown(WAIT_MILLIS);
+        }
+        assertEquals(1 + queue.capacity(), flushes.flushedCount());
+    }
+
+    @Test
+    void shutdownWritesEveryAcceptedEventDespiteConcurrentOffers() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 1024, 32, 10);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            String prefix = "p" + p + "-";
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; !stop.get(); i++) {
+                    if (queue.offer(event(prefix + i))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        started.await();
+        Thread.sleep(50);
+
+        // Arrêt pendant que les producteurs publient encore: aucune publication acceptée ne doit se perdre
+        Thread shutdown = new Thread(() -> queue.shutdown(WAIT_MILLIS));
+        shutdown.start();
+        Thread.sleep(20);
+        stop.set(true);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        shutdown.join();
+
+        assertFalse(queue.offer(event("late")));
+        assertEquals(0, queue.depth());
+        assertEquals(accepted.get(), queue.getAcceptedCount());
+        assertEquals(accepted.get(), queue.getPersistedCount());
+        assertEquals(accepted.get(), repository.writtenEventIds().size());
+        assertEquals(accepted.get(), flushes.flushedCount());
+    }
+
+    @Test
+    void releasesABatchDroppedAfterRepeatedFailures() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        repository.failWrites();
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 64, 2, 60_000);
+        try {
+            queue.offer(event("e1"));
+            queue.offer(event("e2"));
+            assertTrue(flushes.awaitFlushed(2));
+            assertEquals(3, repository.attempts());
+            assertEquals(2, queue.getFailedCount());
+            assertEquals(0, queue.getPersistedCount());
+            assertEquals(0, flushes.persistedCount());
+        } finally {
+            queue.shutdown(WAIT_MILLIS);
+        }
+    }
+
+    @Test
+    void countsDuplicatesAsNeitherPersistedNorFailed() throws InterruptedException {
+        RecordingRepository repository = new RecordingRepository();
+        repository.rejectAsDuplicate("e2");
+        Flushes flushes = new Flushes();
+        WriteBehindQueue queue = new WriteBehindQueue(repository, flushes::persisted, flushes::flushed, 64, 3, 60_000);
+        try {
+            queue.offer(event("e1"));
+            queue.offer(event("e2"));
+            queue.offer(event("e3"));
+            assertTrue(flushes.awaitFlushed(3));
+            assertEquals(2, queue.getPersistedCount());
+            assertEquals(1, queue.getDuplicateCount());
+            assertEquals(0, queue.getFailedCount());
+            assertEquals(2, flushes.persistedCount());
+        } finally {
+            queue.shutdown(WAIT_MILLIS);
+        }
+    }
+
+    private static ViewEvent event(String eventId) {
+        ViewEvent event = new ViewEvent();
+        event.setEventId(eventId);
+        return event;
+    }
+
+    /**
+     * Événements transmis à onPersisted et onFlushed
+     */
+    private static final class Flushes {
+        private final AtomicInteger persisted = new AtomicInteger();
+        private final AtomicInteger flushed = new AtomicInteger();
+
+        void persisted(List<ViewEvent> events) {
+            persisted.addAndGet(events.size());
+        }
+
+        synchronized void flushed(List<ViewEvent> events) {
+            flushed.addAndGet(events.size());
+            notifyAll();
+        }
+
+        synchronized boolean awaitFlushed(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+            while (flushed.get() < count) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+                wait(left);
+            }
+            return true;
+        }
+
+        int persistedCount() {
+            return persisted.get();
+        }
+
+        int flushedCount() {
+            return flushed.get();
+        }
+    }
+
+    /**
+     * Dépôt sans MongoDB: enregistre les lots écrits, peut bloquer, échouer ou signaler des doublons
+     */
+    private static final class RecordingRepository extends EventRepository {
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> written = Collections.synchronizedSet(new HashSet<>());
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final CountDownLatch blockedWrite = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile boolean block;
+        private volatile boolean fail;
+        private volatile String duplicateEventId;
+
+        void blockWrites() { block = true; }
+        void releaseWrites() { release.countDown(); }
+        void failWrites() { fail = true; }
+        void rejectAsDuplicate(String eventId) { duplicateEventId = eventId; }
+
+        boolean awaitBlockedWrite() throws InterruptedException {
+            return blockedWrite.await(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        List<Integer> batchSizes() {
+            synchronized (batchSizes) {
+                return new ArrayList<>(batchSizes);
+            }
+        }
+
+        Set<String> writtenEventIds() {
+            synchronized (written) {
+                return new HashSet<>(written);
+            }
+        }
+
+        int attempts() {
+            return attempts.get();
+        }
+
+        @Override
+        public UnorderedInsert saveBatchUnordered(List<ViewEvent> events) {
+            attempts.incrementAndGet();
+            if (block) {
+                blockedWrite.countDown();
+                try {
+                    release.await(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (fail) {
+                throw new IllegalStateException("write failed");
+            }
+            batchSizes.add(events.size());
+            List<Integer> duplicates = new ArrayList<>();
+            for (int i = 0; i < events.size(); i++) {
+                if (events.get(i).getEventId().equals(duplicateEventId)) {
+                    duplicates.add(i);
+                } else {
+                    written.add(events.get(i).getEventId());
+                }
+            }
+            return duplicates.isEmpty() ? UnorderedInsert.NONE : new UnorderedInsert(duplicates, Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketRingTest {
+
+    private static final long HOUR = 3_600_000L;
+    /** 5 h 15: tranche courante [5 h, 6 h) */
+    private static final long NOW = 5 * HOUR + 15 * 60_000L;
+
+    @Test
+    void allocatesABucketOnlyOnItsFirstWrite() {
+        AtomicInteger created = new AtomicInteger();
+        BucketRing<List<String>> ring = new BucketRing<>(HOUR, 4, () -> {
+            created.incrementAndGet();
+            return new ArrayList<>();
+        }, List::clear);
+
+        ring.forEachBucket(0, NOW, (start, bucket) -> { });
+        assertEquals(0, created.get());
+
+        ring.update(5 * HOUR, NOW, bucket -> bucket.add("a"));
+        ring.update(5 * HOUR + 1, NOW, bucket -> bucket.add("b"));
+        assertEquals(1, created.get());
+        assertEquals(List.of("a", "b"), contents(ring, 0, NOW).get(0));
+    }
+
+    @Test
+    void resetsAndReusesASlotForANewerBucket() {
+        AtomicInteger resets = new AtomicInteger();
+        BucketRing<List<String>> ring = new BucketRing<>(HOUR, 4, ArrayList::new, bucket -> {
+            resets.incrementAndGet();
+            bucket.clear();
+        });
+        ring.update(2 * HOUR, NOW, bucket -> bucket.add("old"));
+        List<List<String>> before = contents(ring, 0, NOW);
+
+        // 4 heures plus tard, la tranche 6 h reprend l'emplacement de la tranche 2 h
+        long later = NOW + 4 * HOUR;
+        ring.update(6 * HOUR, later, bucket -> bucket.add("new"));
+
+        assertEquals(1, resets.get());
+        List<List<String>> after = contents(ring, 0, later);
+        assertEquals(List.of(List.of("new")), after);
+        assertSame(before.get(0), after.get(0));
+    }
+
+    @Test
+    void rejectsEventsOlderThanTheWindowAndClampsFutureOnes() {
+        BucketRing<List<String>> ring = new BucketRing<>(HOUR, 4, ArrayList::new, List::clear);
+
+        // Fenêtre de 4 tranches: [2 h, 6 h)
+        assertTrue(ring.update(2 * HOUR, NOW, bucket -> bucket.add("oldest")));
+        assertFalse(ring.update(2 * HOUR - 1, NOW, bucket -> bucket.add("too old")));
+        assertTrue(ring.update(NOW + 10 * HOUR, NOW, bucket -> bucket.add("future")));
+
+        List<Long> starts = new ArrayList<>();
+        List<List<String>> buckets = new ArrayList<>();
+        ring.forEachBucket(0, NOW, (start, bucket) -> {
+            starts.add(start);
+            buckets.add(new ArrayList<>(bucket));
+        });
+        assertEquals(List.of(2 * HOUR, 5 * HOUR), starts);
+        assertEquals(List.of(List.of("oldest"), List.of("future")), buckets);
+    }
+
+    @Test
+    void visitsBucketsFromOldestToNewestWithinTheRange() {
+        BucketRing<List<String>> ring = new BucketRing<>(HOUR, 4, ArrayList::new, List::clear);
+        for (long hour = 5; hour >= 2; hour--) {
+            String label = hour + "h";
+            ring.update(hour * HOUR, NOW, bucket -> bucket.add(label));
+        }
+
+        assertEquals(List.of(List.of("2h"), List.of("3h"), List.of("4h"), List.of("5h")), contents(ring, 0, NOW));
+        assertEquals(List.of(List.of("4h"), List.of("5h")), contents(ring, 4 * HOUR + 59 * 60_000L, NOW));
+        // Sans écriture, la tranche 2 h sort de la fenêtre une heure plus tard
+        assertEquals(List.of(List.of("3h"), List.of("4h"), List.of("5h")), contents(ring, 0, NOW + HOUR));
+    }
+
+    @Test
+    void coversBucketCountTimesBucketLength() {
+        BucketRing<List<String>> ring = new BucketRing<>(HOUR, 4, ArrayList::new, List::clear);
+        assertEquals(4 * HOUR, ring.getRetentionMillis());
+        assertEquals(HOUR, ring.getBucketMillis());
+    }
+
+    private static List<List<String>> contents(BucketRing<List<String>> ring, long fromMillis, long now) {
+        List<List<String>> contents = new ArrayList<>();
+        ring.forEachBucket(fromMillis, now, (start, bucket) -> contents.add(bucket));
+        return contents;
+    }
+}
@@ -0,0 +1,103 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountMinSketchTest {
+
+    private static final int DEPTH = 5;
+    private static final int WIDTH = 2_048;
+
+    @Test
+    void neverUnderestimatesAndStaysWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        long[] counts = skewedCounts(20_000, new Random(42));
+        for (int item = 0; item < counts.length; item++) {
+            sketch.add(hash(item), counts[item]);
+        }
+
+        // Surestimation d'au plus e/width × total avec une probabilité 1 - e^-depth
+        double bound = Math.E / WIDTH * sketch.getTotal();
+        int beyondBound = 0;
+        for (int item = 0; item < counts.length; item++) {
+            long estimate = sketch.estimate(hash(item));
+            assertTrue(estimate >= counts[item], "item " + item + " underestimated");
+            if (estimate - counts[item] > bound) {
+                beyondBound++;
+            }
+        }
+        assertTrue(beyondBound <= counts.length * 2 * Math.exp(-DEPTH), beyondBound + " items beyond the bound");
+    }
+
+    @Test
+    void countsExactlyWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        sketch.add(hash(1), 7);
+        sketch.add(hash(1), 3);
+        sketch.add(hash(2), 1);
+        assertEquals(10, sketch.estimate(hash(1)));
+        assertEquals(1, sketch.estimate(hash(2)));
+        assertEquals(0, sketch.estimate(hash(3)));
+        assertEquals(11, sketch.getTotal());
+    }
+
+    @Test
+    void mergesByAddition() {
+        CountMinSketch left = new CountMinSketch(DEPTH, WIDTH);
+        CountMinSketch right = new CountMinSketch(DEPTH, WIDTH);
+        CountMinSketch both = new CountMinSketch(DEPTH, WIDTH);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long h = hash(random.nextInt(3_000));
+            (i % 2 == 0 ? left : right).add(h, 1);
+            both.add(h, 1);
+        }
+
+        left.merge(right);
+
+        assertEquals(both.getTotal(), left.getTotal());
+        for (int item = 0; item < 3_000; item++) {
+            assertEquals(both.estimate(hash(item)), left.estimate(hash(item)));
+        }
+    }
+
+    @Test
+    void clearsEveryCounter() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        for (int item = 0; item < 1_000; item++) {
+            sketch.add(hash(item), item);
+        }
+        sketch.clear();
+        assertEquals(0, sketch.getTotal());
+        for (int item = 0; item < 1_000; item++) {
+            assertEquals(0, sketch.estimate(hash(item)));
+        }
+    }
+
+    @Test
+    void rejectsMergesOfDifferentDimensions() {
+        CountMinSketch sketch = new CountMinSketch(DEPTH, WIDTH);
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(DEPTH, WIDTH / 2)));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(DEPTH + 1, WIDTH)));
+    }
+
+    /**
+     * Fréquences de type Zipf: l'élément i apparaît environ 10 000 / (i + 1) fois
+     */
+    static long[] skewedCounts(int items, Random random) {
+        long[] counts = new long[items];
+        for (int i = 0; i < items; i++) {
+            counts[i] = 1 + 10_000 / (i + 1) + random.nextInt(3);
+        }
+        return counts;
+    }
+
+    static long hash(int item) {
+        return HyperLogLog.hash("video-" + item);
+    }
+}
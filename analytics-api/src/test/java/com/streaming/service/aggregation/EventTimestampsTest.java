@@ -0,0 +1,112 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventTimestampsTest {
+
+    @Test
+    void parsesUtcInstantsLikeJavaTime() {
+        assertParsedLikeJavaTime("2024-03-10T14:30:00Z");
+        assertParsedLikeJavaTime("1970-01-01T00:00:00Z");
+        assertParsedLikeJavaTime("1969-12-31T23:59:59.999Z");
+        assertParsedLikeJavaTime("2099-12-31T23:59:59Z");
+        assertEquals(Instant.parse("2024-03-10T14:30:00Z").toEpochMilli(), EventTimestamps.parse("2024-03-10T14:30Z"));
+        assertEquals(Instant.parse("2024-03-10T14:30:00Z").toEpochMilli(), EventTimestamps.parse("2024-03-10t14:30:00z"));
+    }
+
+    @Test
+    void appliesOffsets() {
+        assertParsedLikeJavaTime("2024-03-10T14:30:00+02:00");
+        assertParsedLikeJavaTime("2024-03-10T01:15:00-05:30");
+        assertParsedLikeJavaTime("2024-12-31T23:00:00-14:00");
+        assertParsedLikeJavaTime("2024-01-01T00:00:00+18:00");
+        // Offset sans deux-points
+        assertEquals(OffsetDateTime.parse("2024-03-10T14:30:00+05:30").toInstant().toEpochMilli(),
+                EventTimestamps.parse("2024-03-10T14:30:00+0530"));
+    }
+
+    @Test
+    void truncatesFractionsToMillis() {
+        assertParsedLikeJavaTime("2024-03-10T14:30:00.5Z");
+        assertParsedLikeJavaTime("2024-03-10T14:30:00.12Z");
+        assertParsedLikeJavaTime("2024-03-10T14:30:00.123Z");
+        assertParsedLikeJavaTime("2024-03-10T14:30:00.123456789Z");
+        assertParsedLikeJavaTime("2024-03-10T14:30:00.999999+01:00");
+        assertParsedLikeJavaTime("1969-12-31T23:59:59.0001Z");
+        assertEquals(EventTimestamps.parse("2024-03-10T14:30:00.25Z"), EventTimestamps.parse("2024-03-10T14:30:00,25Z"));
+        // Fraction vide: refusée par la lecture rapide, acceptée par java.time
+        assertParsedLikeJavaTime("2024-03-10T14:30:00.Z");
+    }
+
+    @Test
+    void handlesLeapYears() {
+        assertParsedLikeJavaTime("2024-02-29T12:00:00Z");
+        assertParsedLikeJavaTime("2000-02-29T12:00:00Z");
+        assertParsedLikeJavaTime("2024-03-01T00:00:00Z");
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2023-02-29T12:00:00Z"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("1900-02-29T12:00:00Z"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2024-04-31T12:00:00Z"));
+    }
+
+    @Test
+    void readsDigitsAsEpochMillis() {
+        assertEquals(0L, EventTimestamps.parse("0"));
+        assertEquals(1_710_081_000_123L, EventTimestamps.parse("1710081000123"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("1234567890123456789"));
+    }
+
+    @Test
+    void readsZonelessInputAsUtc() {
+        assertEquals(LocalDateTime.parse("2024-03-10T14:30:00").toInstant(ZoneOffset.UTC).toEpochMilli(),
+                EventTimestamps.parse("2024-03-10T14:30:00"));
+        assertEquals(LocalDateTime.parse("2024-03-10T14:30:00.456").toInstant(ZoneOffset.UTC).toEpochMilli(),
+                EventTimestamps.parse("2024-03-10 14:30:00.456"));
+        assertEquals(LocalDateTime.parse("2024-03-10T14:30").toInstant(ZoneOffset.UTC).toEpochMilli(),
+                EventTimestamps.parse("2024-03-10T14:30"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse(""));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("yesterday"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2024-13-01T00:00:00Z"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2024-01-01T25:00:00Z"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2024-01-01T00:00:60Z"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2024-01-01T00:00:00+19:00"));
+        assertEquals(EventTimestamps.INVALID, EventTimestamps.parse("2024-01-01T00:00:00Zjunk"));
+    }
+
+    @Test
+    void fallsBackWhenMissingOrUnreadable() {
+        assertEquals(42L, EventTimestamps.toEpochMillis((String) null, 42L));
+        assertEquals(42L, EventTimestamps.toEpochMillis("", 42L));
+        assertEquals(42L, EventTimestamps.toEpochMillis("not a date", 42L));
+        assertEquals(0L, EventTimestamps.toEpochMillis("0", 42L));
+    }
+
+    @Test
+    void matchesJavaTimeOnRandomInstantsAndOffsets() {
+        Random random = new Random(20240310L);
+        long from = Instant.parse("1900-01-01T00:00:00Z").toEpochMilli();
+        long to = Instant.parse("2100-01-01T00:00:00Z").toEpochMilli();
+        for (int i = 0; i < 10_000; i++) {
+            long millis = from + (long) (random.nextDouble() * (to - from));
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds((random.nextInt(57) - 28) * 30 * 60);
+            String text = Instant.ofEpochMilli(millis).atOffset(offset).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+            assertEquals(millis, EventTimestamps.parse(text), text);
+        }
+    }
+
+    private static void assertParsedLikeJavaTime(String text) {
+        assertEquals(OffsetDateTime.parse(text).toInstant().toEpochMilli(), EventTimestamps.parse(text), text);
+    }
+}
@@ -0,0 +1,132 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.streaming.service.aggregation.CountMinSketchTest.hash;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterSketchTest {
+
+    @Test
+    void countsExactlyUntilTheSummaryIsFull() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(10, 4, 1_024);
+        add(sketch, "a", 5);
+        add(sketch, "b", 2);
+        add(sketch, "c", 9);
+
+        Map<String, Long> counts = candidates(sketch);
+        assertEquals(Map.of("a", 5L, "b", 2L, "c", 9L), counts);
+        assertEquals(0, sketch.getUntrackedBound());
+    }
+
+    @Test
+    void visitsCandidatesByDecreasingCount() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(50, 4, 1_024);
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            int item = (int) Math.min(199, Math.abs(random.nextGaussian()) * 30);
+            sketch.add("video-" + item, hash(item));
+        }
+        long[] previous = {Long.MAX_VALUE};
+        sketch.forEachCandidate((item, hash, count) -> {
+            assertTrue(count <= previous[0], item + " out of order");
+            previous[0] = count;
+        });
+    }
+
+    @Test
+    void findsTheHeavyHittersOfASkewedStream() {
+        int capacity = 100;
+        HeavyHitterSketch sketch = new HeavyHitterSketch(capacity, 4, 4_096);
+        long[] counts = CountMinSketchTest.skewedCounts(20_000, new Random(11));
+        List<Integer> stream = new ArrayList<>();
+        for (int item = 0; item < counts.length; item++) {
+            for (long n = 0; n < counts[item]; n++) {
+                stream.add(item);
+            }
+        }
+        Collections.shuffle(stream, new Random(12));
+        for (int item : stream) {
+            sketch.add("video-" + item, hash(item));
+        }
+
+        Map<String, Long> candidates = candidates(sketch);
+        // Les 10 plus fréquents sont suivis, avec un compteur qui majore la vraie fréquence
+        for (int item = 0; item < 10; item++) {
+            Long count = candidates.get("video-" + item);
+            assertTrue(count != null, "video-" + item + " missing");
+            assertTrue(count >= counts[item], "video-" + item + " underestimated");
+            assertTrue(count <= counts[item] + sketch.getUntrackedBound(), "video-" + item + " overestimated");
+        }
+        // Tout élément non suivi est majoré par le plus grand compteur évincé
+        for (int item = 0; item < counts.length; item++) {
+            if (!candidates.containsKey("video-" + item)) {
+                assertTrue(counts[item] <= sketch.getUntrackedBound(), "video-" + item + " above the bound");
+            }
+        }
+    }
+
+    @Test
+    void doesNotLetARareItemInheritAHighCount() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(3, 4, 1_024);
+        add(sketch, "a", 1_000);
+        add(sketch, "b", 800);
+        add(sketch, "c", 600);
+
+        sketch.add("rare", HyperLogLog.hash("rare"));
+
+        // Space-Saving seul donnerait 601; le Count-Min sait que "rare" n'a été vu qu'une fois
+        Map<String, Long> counts = candidates(sketch);
+        assertEquals(1L, counts.get("rare"));
+        assertEquals(Map.of("a", 1_000L, "b", 800L, "rare", 1L), counts);
+        // "c" évincé reste majoré par son dernier compteur, pas par le plus petit suivi
+        assertEquals(600, sketch.getUntrackedBound());
+    }
+
+    @Test
+    void estimatesEveryItemThroughItsCountMin() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(2, 4, 1_024);
+        add(sketch, "a", 10);
+        add(sketch, "b", 20);
+        add(sketch, "c", 30);
+
+        assertEquals(60, sketch.getFrequencies().getTotal());
+        assertTrue(sketch.getFrequencies().estimate(HyperLogLog.hash("a")) >= 10);
+    }
+
+    @Test
+    void clearsCandidatesAndFrequencies() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(2, 4, 1_024);
+        add(sketch, "a", 10);
+        add(sketch, "b", 20);
+        add(sketch, "c", 30);
+        sketch.clear();
+
+        assertTrue(candidates(sketch).isEmpty());
+        assertEquals(0, sketch.getFrequencies().getTotal());
+        assertEquals(0, sketch.getUntrackedBound());
+        add(sketch, "d", 2);
+        assertEquals(Map.of("d", 2L), candidates(sketch));
+    }
+
+    private static void add(HeavyHitterSketch sketch, String item, int times) {
+        long hash = HyperLogLog.hash(item);
+        for (int i = 0; i < times; i++) {
+            sketch.add(item, hash);
+        }
+    }
+
+    private static Map<String, Long> candidates(HeavyHitterSketch sketch) {
+        Map<String, Long> counts = new HashMap<>();
+        sketch.forEachCandidate((item, hash, count) -> counts.put(item, count));
+        return counts;
+    }
+}
@@ -0,0 +1,114 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void staysWithinThreeStandardErrors() {
+        for (int precision : new int[] {10, 14}) {
+            double standardError = 1.04 / Math.sqrt(1 << precision);
+            for (int cardinality : new int[] {1_000, 10_000, 100_000, 1_000_000}) {
+                HyperLogLog sketch = sketchOf(precision, "user-", 0, cardinality);
+                double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+                assertTrue(error < 3 * standardError,
+                        "precision " + precision + ", " + cardinality + " users: error " + error);
+            }
+        }
+    }
+
+    @Test
+    void averagesTheTheoreticalStandardError() {
+        int precision = 10;
+        int cardinality = 50_000;
+        int trials = 40;
+        double squares = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            HyperLogLog sketch = sketchOf(precision, "trial-" + trial + "-", 0, cardinality);
+            double error = (sketch.estimate() - cardinality) / (double) cardinality;
+            squares += error * error;
+        }
+        // Erreur quadratique moyenne proche de 1,04 / √m, avec une marge pour 40 essais
+        double rms = Math.sqrt(squares / trials);
+        assertTrue(rms < 1.5 * 1.04 / Math.sqrt(1 << precision), "rms error " + rms);
+    }
+
+    @Test
+    void countsSmallCardinalitiesAlmostExactly() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        assertEquals(0, sketch.estimate());
+        for (int i = 1; i <= 100; i++) {
+            sketch.add(HyperLogLog.hash("user-" + i));
+        }
+        // Comptage linéaire: quasiment aucune collision de registre pour 100 éléments sur 16 384
+        assertTrue(Math.abs(sketch.estimate() - 100) <= 1, "estimate " + sketch.estimate());
+    }
+
+    @Test
+    void ignoresRepeatedElements() {
+        HyperLogLog once = sketchOf(12, "user-", 0, 5_000);
+        HyperLogLog repeated = sketchOf(12, "user-", 0, 5_000);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                repeated.add(HyperLogLog.hash("user-" + i));
+            }
+        }
+        assertEquals(once.estimate(), repeated.estimate());
+    }
+
+    @Test
+    void mergesLikeTheUnionOfBothSets() {
+        HyperLogLog left = sketchOf(12, "user-", 0, 60_000);
+        HyperLogLog right = sketchOf(12, "user-", 40_000, 100_000);
+        HyperLogLog union = sketchOf(12, "user-", 0, 100_000);
+
+        left.merge(right);
+
+        // Maximum registre par registre: exactement le sketch de l'union, pas une approximation
+        assertEquals(union.estimate(), left.estimate());
+        assertTrue(Math.abs(left.estimate() - 100_000) < 3 * 100_000 * 1.04 / Math.sqrt(1 << 12));
+    }
+
+    @Test
+    void mergeLeavesTheSourceUnchanged() {
+        HyperLogLog target = sketchOf(12, "a-", 0, 1_000);
+        HyperLogLog source = sketchOf(12, "b-", 0, 2_000);
+        long before = source.estimate();
+
+        target.merge(source);
+        target.merge(source);
+
+        assertEquals(before, source.estimate());
+        HyperLogLog expected = sketchOf(12, "a-", 0, 1_000);
+        for (int i = 0; i < 2_000; i++) {
+            expected.add(HyperLogLog.hash("b-" + i));
+        }
+        assertEquals(expected.estimate(), target.estimate());
+    }
+
+    @Test
+    void clearsBackToEmpty() {
+        HyperLogLog sketch = sketchOf(10, "user-", 0, 10_000);
+        sketch.clear();
+        assertEquals(0, sketch.estimate());
+    }
+
+    @Test
+    void rejectsInvalidPrecisionsAndMismatchedMerges() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).merge(new HyperLogLog(12)));
+    }
+
+    private static HyperLogLog sketchOf(int precision, String prefix, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = from; i < to; i++) {
+            sketch.add(HyperLogLog.hash(prefix + i));
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,88 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RotatingBloomFilterTest {
+
+    private static final int CAPACITY = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    void hasNoFalseNegativesInsideTheWindow() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(CAPACITY, FALSE_POSITIVE_RATE);
+        // Trois générations: seuls les 2 × capacity derniers éléments sont garantis
+        for (int i = 0; i < 3 * CAPACITY; i++) {
+            filter.add(hash("event-" + i));
+        }
+        for (int i = 2 * CAPACITY; i < 3 * CAPACITY; i++) {
+            assertTrue(filter.mightContain(hash("event-" + i)), "event-" + i);
+        }
+    }
+
+    @Test
+    void keepsTheFalsePositiveRateNearTheTarget() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(CAPACITY, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < 2 * CAPACITY; i++) {
+            filter.add(hash("event-" + i));
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(hash("other-" + i))) {
+                falsePositives++;
+            }
+        }
+        // Deux générations pleines: au plus ≈ 2p
+        assertTrue(falsePositives < probes * 2.5 * FALSE_POSITIVE_RATE, falsePositives + " false positives");
+    }
+
+    @Test
+    void forgetsElementsTwoGenerationsOld() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(CAPACITY, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < CAPACITY; i++) {
+            filter.add(hash("old-" + i));
+        }
+        for (int i = 0; i < CAPACITY + 1; i++) {
+            filter.add(hash("new-" + i));
+        }
+        int remembered = 0;
+        for (int i = 0; i < CAPACITY; i++) {
+            if (filter.mightContain(hash("old-" + i))) {
+                remembered++;
+            }
+        }
+        assertTrue(remembered < CAPACITY * 2.5 * FALSE_POSITIVE_RATE, remembered + " old elements still present");
+    }
+
+    @Test
+    void startsEmpty() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(CAPACITY, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(filter.mightContain(hash("event-" + i)));
+        }
+    }
+
+    @Test
+    void sizesBothGenerationsFromCapacityAndRate() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(CAPACITY, FALSE_POSITIVE_RATE);
+        long bits = (long) Math.ceil(-CAPACITY * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+        long wordAligned = (bits + 63) / 64 * 64;
+        assertEquals(2 * wordAligned / 8, filter.sizeInBytes());
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new RotatingBloomFilter(0, FALSE_POSITIVE_RATE));
+        assertThrows(IllegalArgumentException.class, () -> new RotatingBloomFilter(CAPACITY, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RotatingBloomFilter(CAPACITY, 1));
+    }
+
+    private static long hash(String value) {
+        return HyperLogLog.hash(value);
+    }
+}
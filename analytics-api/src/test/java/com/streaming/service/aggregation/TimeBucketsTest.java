@@ -0,0 +1,138 @@
+package com.streaming.service.aggregation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeBucketsTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long KEY = 42L;
+
+    /** 10 min 30 s: tranche courante [10 min, 11 min) */
+    private static final long NOW = 10 * MINUTE + 30_000L;
+
+    @Test
+    void keepsTheOldestBucketOfTheWindowAndDropsTheOneBefore() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+
+        // Fenêtre de 3 tranches: [8 min, 11 min)
+        assertTrue(buckets.add(8 * MINUTE, NOW, KEY, 1, 10));
+        assertFalse(buckets.add(8 * MINUTE - 1, NOW, KEY, 1, 10));
+        assertFalse(buckets.add(7 * MINUTE, NOW, KEY, 1, 10));
+
+        assertEquals(List.of(8 * MINUTE), bucketStarts(buckets, 0, NOW));
+        assertEquals(1, totalViews(buckets, 0, NOW));
+    }
+
+    @Test
+    void placesBucketBoundariesInTheLaterBucket() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+        buckets.add(9 * MINUTE - 1, NOW, KEY, 1, 0);
+        buckets.add(9 * MINUTE, NOW, KEY, 2, 0);
+        buckets.add(10 * MINUTE, NOW, KEY, 4, 0);
+
+        List<long[]> views = new ArrayList<>();
+        buckets.forEachBucket(0, NOW, (start, counters) -> views.add(new long[] {start, counters.views(KEY)}));
+        assertEquals(3, views.size());
+        assertArrayEqualsRow(new long[] {8 * MINUTE, 1}, views.get(0));
+        assertArrayEqualsRow(new long[] {9 * MINUTE, 2}, views.get(1));
+        assertArrayEqualsRow(new long[] {10 * MINUTE, 4}, views.get(2));
+    }
+
+    @Test
+    void bringsFutureEventsBackToTheCurrentBucket() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+        assertTrue(buckets.add(NOW + 60 * MINUTE, NOW, KEY, 1, 5));
+
+        assertEquals(List.of(10 * MINUTE), bucketStarts(buckets, 0, NOW));
+    }
+
+    @Test
+    void clearsASlotWhenANewerBucketReusesIt() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+        buckets.add(8 * MINUTE, NOW, KEY, 5, 50);
+
+        // 3 minutes plus tard, la tranche 11 min reprend l'emplacement de la tranche 8 min
+        long later = NOW + 3 * MINUTE;
+        buckets.add(11 * MINUTE, later, KEY, 1, 10);
+
+        assertEquals(List.of(11 * MINUTE), bucketStarts(buckets, 0, later));
+        assertEquals(1, totalViews(buckets, 0, later));
+    }
+
+    @Test
+    void readsOnlyBucketsStartingInTheRequestedRange() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 5);
+        for (long minute = 6; minute <= 10; minute++) {
+            buckets.add(minute * MINUTE, NOW, KEY, 1, 0);
+        }
+
+        // Début en milieu de tranche: la tranche qui le contient est incluse
+        assertEquals(List.of(8 * MINUTE, 9 * MINUTE, 10 * MINUTE), bucketStarts(buckets, 8 * MINUTE + 1, NOW));
+        assertEquals(List.of(10 * MINUTE), bucketStarts(buckets, 10 * MINUTE, NOW));
+        // Début antérieur à la fenêtre: ramené à la plus ancienne tranche conservée
+        assertEquals(5, bucketStarts(buckets, Long.MIN_VALUE / 2, NOW).size());
+    }
+
+    @Test
+    void skipsStaleBucketsOnceTimeHasMoved() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+        buckets.add(9 * MINUTE, NOW, KEY, 1, 0);
+        buckets.add(10 * MINUTE, NOW, KEY, 1, 0);
+
+        // Sans nouvelle écriture, la tranche 9 min sort de la fenêtre à 12 min
+        long later = 12 * MINUTE;
+        assertEquals(List.of(10 * MINUTE), bucketStarts(buckets, 0, later));
+        assertTrue(bucketStarts(buckets, 0, 13 * MINUTE).isEmpty());
+    }
+
+    @Test
+    void evictsBucketsOutsideTheWindow() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+        buckets.add(8 * MINUTE, NOW, KEY, 1, 0);
+        buckets.add(10 * MINUTE, NOW, KEY, 1, 0);
+
+        buckets.evict(11 * MINUTE);
+
+        assertEquals(List.of(10 * MINUTE), bucketStarts(buckets, 0, 11 * MINUTE));
+        assertEquals(1, totalViews(buckets, 0, 11 * MINUTE));
+    }
+
+    @Test
+    void handlesTimestampsBeforeTheEpoch() {
+        TimeBuckets buckets = new TimeBuckets(MINUTE, 3);
+        assertTrue(buckets.add(-1, 0, KEY, 1, 0));
+        assertTrue(buckets.add(0, 0, KEY, 1, 0));
+
+        assertEquals(List.of(-MINUTE, 0L), bucketStarts(buckets, -10 * MINUTE, 0));
+    }
+
+    @Test
+    void coversBucketCountTimesBucketLength() {
+        assertEquals(3 * MINUTE, new TimeBuckets(MINUTE, 3).getRetentionMillis());
+        assertEquals(MINUTE, new TimeBuckets(MINUTE, 3).getBucketMillis());
+    }
+
+    private static List<Long> bucketStarts(TimeBuckets buckets, long fromMillis, long now) {
+        List<Long> starts = new ArrayList<>();
+        buckets.forEachBucket(fromMillis, now, (start, counters) -> starts.add(start));
+        return starts;
+    }
+
+    private static long totalViews(TimeBuckets buckets, long fromMillis, long now) {
+        long[] total = {0};
+        buckets.forEachBucket(fromMillis, now, (start, counters) -> total[0] += counters.views(KEY));
+        return total[0];
+    }
+
+    private static void assertArrayEqualsRow(long[] expected, long[] actual) {
+        assertEquals(expected[0], actual[0]);
+        assertEquals(expected[1], actual[1], "views of the bucket starting at " + expected[0]);
+    }
+}
@@ -0,0 +1,101 @@
+package com.streaming.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.MongoCredential;
+import com.mongodb.ReadPreference;
+import com.mongodb.ServerAddress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MongoDB client settings shared by the API, the dashboard and the command-line tools.
+ *
+ * Configured from the MONGODB_* environment variables of docker-compose.yml (or the matching system
+ * properties, see {@link Settings}); MONGODB_URI, when set, takes precedence over host/port/credentials.
+ */
+public final class MongoSettings {
+
+    private MongoSettings() {}
+
+    /**
+     * Client settings from the MONGODB_* variables, ready for application-specific listeners
+     */
+    public static MongoClientSettings.Builder clientSettings(String applicationName) {
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+
+        String uri = Settings.get("MONGODB_URI", null);
+        if (uri != null) {
+            builder.applyConnectionString(new ConnectionString(uri));
+        } else {
+            String host = Settings.get("MONGODB_HOST", "mongodb");
+            int port = Settings.getInt("MONGODB_PORT", 27017);
+            builder.applyToClusterSettings(cluster ->
+                    cluster.hosts(Collections.singletonList(new ServerAddress(host, port))));
+            String username = Settings.get("MONGODB_USERNAME", "admin");
+            String password = Settings.get("MONGODB_PASSWORD", "admin123");
+            if (username != null && password != null) {
+                builder.credential(MongoCredential.createCredential(username,
+                        Settings.get("MONGODB_AUTH_SOURCE", "admin"), password.toCharArray()));
+            }
+        }
+
+        int maxPoolSize = Settings.getInt("MONGODB_MAX_POOL_SIZE", 50);
+        int minPoolSize = Settings.getInt("MONGODB_MIN_POOL_SIZE", 5);
+        long maxWaitMs = Settings.getLong("MONGODB_MAX_WAIT_MS", 2000);
+        int maxConnecting = Settings.getInt("MONGODB_MAX_CONNECTING", 4);
+        long maxIdleMs = Settings.getLong("MONGODB_MAX_IDLE_MS", 300_000);
+
+        return builder.applyToConnectionPoolSettings(pool -> pool
+                        .maxSize(maxPoolSize)
+                        .minSize(Math.min(minPoolSize, maxPoolSize))
+                        .maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS)
+                        .maxConnecting(maxConnecting)
+                        .maxConnectionIdleTime(maxIdleMs, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(Settings.getInt("MONGODB_CONNECT_TIMEOUT_MS", 5000), TimeUnit.MILLISECONDS))
+                .compressorList(compressors(Settings.get("MONGODB_COMPRESSORS", "zstd,snappy")))
+                .applicationName(applicationName);
+    }
+
+    /**
+     * Database named by MONGODB_DATABASE
+     */
+    public static String databaseName() {
+        return Settings.get("MONGODB_DATABASE", "streaming_analytics");
+    }
+
+    /**
+     * Read preference for analytics reads (aggregations, scans); writes always go to the primary
+     */
+    public static ReadPreference analyticsReadPreference() {
+        return ReadPreference.valueOf(Settings.get("MONGODB_ANALYTICS_READ_PREFERENCE", "secondaryPreferred"));
+    }
+
+    /**
+     * Wire compressors in order of preference, negotiated with the server ("none" disables compression)
+     */
+    static List<MongoCompressor> compressors(String names) {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        for (String name : names.split(",")) {
+            switch (name.trim().toLowerCase()) {
+                case "zstd":
+                    compressors.add(MongoCompressor.createZstdCompressor());
+                    break;
+                case "snappy":
+                    compressors.add(MongoCompressor.createSnappyCompressor());
+                    break;
+                case "zlib":
+                    compressors.add(MongoCompressor.createZlibCompressor());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return compressors;
+    }
+}
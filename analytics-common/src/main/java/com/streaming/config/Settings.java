@@ -0,0 +1,37 @@
+package com.streaming.config;
+
+/**
+ * Application settings read from system properties, then environment variables.
+ * A key such as {@code MONGODB_MAX_POOL_SIZE} can be overridden with {@code -Dmongodb.max.pool.size=...}
+ */
+public final class Settings {
+
+    private Settings() {}
+
+    public static String get(String envName, String defaultValue) {
+        String property = System.getProperty(envName.toLowerCase().replace('_', '.'));
+        if (property != null && !property.isEmpty()) {
+            return property;
+        }
+        String env = System.getenv(envName);
+        return env != null && !env.isEmpty() ? env : defaultValue;
+    }
+
+    public static int getInt(String envName, int defaultValue) {
+        String value = get(envName, null);
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String envName, long defaultValue) {
+        String value = get(envName, null);
+        try {
+            return value != null ? Long.parseLong(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.streaming.analytics.servlet;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.streaming.config.MongoSettings;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Creates the single MongoClient of the dashboard webapp and shares its database with every servlet
+ * through the servlet context. Configured by {@link MongoSettings}, like the API.
+ */
+@WebListener
+public class MongoContextListener implements ServletContextListener {
+
+    public static final String DATABASE_ATTRIBUTE = MongoContextListener.class.getName() + ".database";
+    private static final String CLIENT_ATTRIBUTE = MongoContextListener.class.getName() + ".client";
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        MongoClient client = MongoClients.create(MongoSettings.clientSettings("analytics-dashboard").build());
+        // The servlets only run analytics reads: MONGODB_ANALYTICS_READ_PREFERENCE applies to their
+        // database handle, the client itself keeps the default (primary) read preference
+        MongoDatabase database = client.getDatabase(MongoSettings.databaseName())
+                .withReadPreference(MongoSettings.analyticsReadPreference());
+        ServletContext context = sce.getServletContext();
+        context.setAttribute(CLIENT_ATTRIBUTE, client);
+        context.setAttribute(DATABASE_ATTRIBUTE, database);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        Object client = sce.getServletContext().getAttribute(CLIENT_ATTRIBUTE);
+        if (client instanceof MongoClient) {
+            ((MongoClient) client).close();
+        }
+    }
+
+    /**
+     * Shared database of the webapp
+     */
+    public static MongoDatabase database(ServletContext context) {
+        return (MongoDatabase) context.getAttribute(DATABASE_ATTRIBUTE);
+    }
+}
@@ -392,29 +392,56 @@
             initializeRealtimeUpdates();
         });
 
-        // Real-time SSE updates
+        // Real-time SSE updates (delta mode: snapshot, then changed fields only)
+        // The browser reconnects on its own and sends Last-Event-ID so the server can replay missed deltas
+        let realtimeState = {};
+
         function initializeRealtimeUpdates() {
             try {
-                const evtSource = new EventSource(API_BASE_URL + '/realtime/stream');
-                
-                evtSource.addEventListener('stats', function(event) {
+                const evtSource = new EventSource(API_BASE_URL + '/realtime/stream?mode=delta');
+
+                evtSource.addEventListener('snapshot', function(event) {
+                    try {
+                        realtimeState = JSON.parse(event.data);
+                        updateRealtimeStats(realtimeState);
+                    } catch (e) {
+                        console.log('Snapshot event received');
+                    }
+                }, false);
+
+                evtSource.addEventListener('delta', function(event) {
                     try {
-                        const stats = JSON.parse(event.data);
-                        updateRealtimeStats(stats);
+                        applyRealtimeDelta(JSON.parse(event.data));
+                        updateRealtimeStats(realtimeState);
                     } catch (e) {
-                        console.log('Stats event received');
+                        console.log('Delta event received');
                     }
                 }, false);
 
                 evtSource.onerror = function(event) {
                     console.log('SSE Connection: attempting to reconnect');
-                    setTimeout(() => initializeRealtimeUpdates(), 3000);
                 };
             } catch (error) {
                 console.log('Real-time updates not available');
             }
         }
 
+        // Merge a delta into the local state; list fields carry only the ranks that changed
+        function applyRealtimeDelta(delta) {
+            Object.keys(delta).forEach(function(field) {
+                const value = delta[field];
+                if (value && value.ranks && !Array.isArray(value)) {
+                    const list = (realtimeState[field] || []).slice(0, value.length);
+                    Object.keys(value.ranks).forEach(function(rank) {
+                        list[parseInt(rank, 10)] = value.ranks[rank];
+                    });
+                    realtimeState[field] = list;
+                } else {
+                    realtimeState[field] = value;
+                }
+            });
+        }
+
         // Update real-time statistics
         function updateRealtimeStats(stats) {
             if (stats.currentViewers !== undefined) {
@@ -186,7 +186,7 @@ import_data() {
         --password admin123 \
         --authenticationDatabase admin \
         --db streaming_analytics \
-        --collection events \
+        --collection viewevents \
         --file /tmp/events_100k.json \
         --jsonArray
     
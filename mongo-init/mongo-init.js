@@ -24,6 +24,15 @@ db.createCollection('viewevents', {
   }
 });
 
+// Events in time-series storage (EVENTS_STORAGE=timeseries): buckets per {videoId, deviceType}
+db.createCollection('viewevents_ts', {
+  timeseries: {
+    timeField: 'timestamp',
+    metaField: 'meta',
+    granularity: 'seconds'
+  }
+});
+
 db.createCollection('video_stats');
 db.createCollection('user_profiles');
 db.createCollection('videos');
@@ -38,6 +47,22 @@ db.viewevents.createIndex({ 'videoId': 1 });
 db.viewevents.createIndex({ 'timestamp': -1 });
 db.viewevents.createIndex({ 'userId': 1, 'timestamp': -1 });
 db.viewevents.createIndex({ 'videoId': 1, 'timestamp': -1 });
+// Idempotent ingestion: a retried event is rejected as a duplicate key (events without eventId not indexed)
+db.viewevents.createIndex({ 'eventId': 1 }, {
+    name: 'eventId_unique',
+    unique: true,
+    partialFilterExpression: { 'eventId': { $type: 'string' } }
+});
+
+// Time-series events indexes (the timestamp range is served by the buckets' clustered index)
+db.viewevents_ts.createIndex({ 'meta.videoId': 1, 'timestamp': -1 });
+db.viewevents_ts.createIndex({ 'userId': 1, 'timestamp': -1 });
+// Not unique (unsupported on time-series): serves the API's duplicate lookups, deduplication is best-effort
+db.viewevents_ts.createIndex({ 'eventId': 1 });
+
+// Hourly per-video summaries of the events removed by retention ($merge key, then time range)
+db.viewevents_hourly.createIndex({ 'videoId': 1, 'hour': 1 }, { unique: true });
+db.viewevents_hourly.createIndex({ 'hour': -1 });
 
 // Video stats indexes
 db.video_stats.createIndex({ 'videoId': 1 }, { unique: true });
@@ -53,7 +78,8 @@ db.videos.createIndex({ 'category': 1 });
 db.videos.createIndex({ 'views': -1 });
 
 // Recommendations indexes
-db.recommendations.createIndex({ 'userId': 1 });
+db.recommendations.createIndex({ 'userId': 1, 'videoId': 1 }, { unique: true });
+db.recommendations.createIndex({ 'userId': 1, 'relevanceScore': -1 });
 db.recommendations.createIndex({ 'generatedAt': -1 });
 
 print('✅ MongoDB initialization complete!');